@@ -0,0 +1,102 @@
+package algorithms;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// MetricsSink that hands the records to a background thread through a bounded lock-free ring buffer
+// (a sequence number per slot, as in Vyukov's bounded MPMC queue). Producers claim a slot with a CAS and
+// only wait when the ring is full; the writer thread drains the ring into a MetricsWriter, which is only
+// flushed when it is closed (a writer with blocks, like ColumnarMetricsWriter, writes full blocks itself).
+public class AsyncMetricsSink implements MetricsSink {
+
+	protected static final int FIELD_COUNT = FIELDS.length;
+
+	protected final MetricsWriter writer;
+	protected final int capacity;
+	protected final double[] slots;
+	protected final AtomicLongArray sequences;
+	protected final AtomicLong tail;
+	protected long head;
+	protected final Thread thread;
+	protected volatile boolean closed;
+	protected volatile Exception failure;	// of the writer thread
+
+	public AsyncMetricsSink(MetricsWriter writer, int capacity) {
+		this.writer = writer;
+		this.capacity = capacity;
+		slots = new double[capacity * FIELD_COUNT];
+		sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++)
+			sequences.set(i, i);
+		tail = new AtomicLong();
+		thread = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "metrics-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public void record(double[] values) {
+		if (closed || failure != null)
+			throw new IllegalStateException("Metrics sink is closed", failure);
+		long position;
+		while (true) {
+			position = tail.get();
+			int slot = (int) (position % capacity);
+			long sequence = sequences.get(slot);
+			if (sequence == position && tail.compareAndSet(position, position + 1))
+				break;
+			if (sequence < position) {
+				// the ring is full: wait for the writer, unless it has stopped
+				if (failure != null || !thread.isAlive())
+					throw new IllegalStateException("Metrics writer has stopped", failure);
+				Thread.yield();
+			}
+		}
+		int slot = (int) (position % capacity);
+		System.arraycopy(values, 0, slots, slot * FIELD_COUNT, FIELD_COUNT);
+		sequences.set(slot, position + 1);	// publishes the record
+	}
+
+	protected void drain() {
+		double[] values = new double[FIELD_COUNT];
+		try {
+			while (true) {
+				int slot = (int) (head % capacity);
+				if (sequences.get(slot) == head + 1) {
+					System.arraycopy(slots, slot * FIELD_COUNT, values, 0, FIELD_COUNT);
+					sequences.set(slot, head + capacity);	// frees the slot
+					head++;
+					writer.write(values);
+				} else if (closed && head == tail.get())
+					break;
+				else
+					LockSupport.parkNanos(1000000L);
+			}
+		} catch (IOException | RuntimeException e) {
+			failure = e;
+		} finally {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				if (failure == null)
+					failure = e;
+			}
+		}
+	}
+
+	public void close() {
+		closed = true;
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure != null)
+			throw new IllegalStateException("Could not write metrics", failure);
+	}
+}
@@ -0,0 +1,79 @@
+package algorithms;
+
+import java.io.PrintStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Formats and prints messages on a background thread, so that the generation threads of the runs never
+// wait for the console. Every message is printed with one call, so messages of concurrent runs do not
+// interleave. CONSOLE prints to System.out and is shared by all runs.
+public class AsyncPrinter {
+
+	public static final AsyncPrinter CONSOLE = new AsyncPrinter(System.out);
+
+	protected static class Message {
+		protected final String format;
+		protected final Object[] arguments;
+
+		protected Message(String format, Object[] arguments) {
+			this.format = format;
+			this.arguments = arguments;
+		}
+	}
+
+	protected final PrintStream output;
+	protected final BlockingQueue<Message> queue;
+	protected long queued, printed;	// guarded by queue
+
+	public AsyncPrinter(PrintStream output) {
+		this.output = output;
+		queue = new LinkedBlockingQueue<Message>();
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				print();
+			}
+		}, "printer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public void printf(String format, Object... arguments) {
+		synchronized (queue) {
+			queued++;
+		}
+		queue.add(new Message(format, arguments));
+	}
+
+	// waits until the messages queued so far are printed
+	public void flush() {
+		synchronized (queue) {
+			long target = queued;
+			try {
+				while (printed < target)
+					queue.wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		output.flush();
+	}
+
+	protected void print() {
+		while (true) {
+			Message message;
+			try {
+				message = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			try {
+				output.print(String.format(message.format, message.arguments));
+			} finally {
+				synchronized (queue) {
+					printed++;
+					queue.notifyAll();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,334 @@
+package algorithms;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import main.Individual;
+import main.Population;
+import programElements.Addition;
+import programElements.Constant;
+import programElements.LogisticFunction;
+import programElements.Multiplication;
+import programElements.ProgramElement;
+import programElements.ProtectedDivision;
+import programElements.Subtraction;
+import utils.Parameters;
+
+// Periodic checkpoints of a GP/GSGP run in a compact binary format. The state of the run is copied into
+// a buffer on the generation thread, and the buffer is written to disk (through a temporary file and an
+// atomic rename) by a background thread, so the generation loop does not wait for the disk. Checkpoints
+// are read back through a memory-mapped buffer by the resume constructors of GP and GSGP.
+//
+// Layout (big-endian): header, run state, then one record per individual. Individuals of GP (and of GSGP
+// with BUILD_INDIVIDUALS) store their program elements, as opcodes of the Initializer tables or negative
+// codes for elements created by GSGP, and are re-evaluated on resume. Individuals of the semantics-only
+// GSGP store their training and unseen outputs. Every run reseeds its generator at the end of every
+// generation, whether it takes checkpoints or not (GP.search); the checkpoint stores that seed, so a
+// resumed run continues exactly like the original one. At most one write is in flight: a checkpoint that
+// comes due while the previous one is still being written is skipped and counted, so snapshots do not
+// pile up when the disk is slower than the interval. A failed write is reported by the next write, flush
+// or close.
+public class Checkpoint {
+
+	protected static final int MAGIC = 0x47504350;	// "GPCP"
+	protected static final int VERSION = 2;
+	protected static final byte PROGRAM = 0, SEMANTICS = 1;
+	protected static final int ADDITION = -1, SUBTRACTION = -2, MULTIPLICATION = -3, PROTECTED_DIVISION = -4,
+			LOGISTIC_FUNCTION = -5, CONSTANT = -6;
+
+	protected File file;
+	protected int interval;
+	protected ExecutorService writer;
+	protected Future<?> pendingWrite;
+	protected int skippedWrites;
+
+	public Checkpoint(File file, int interval) {
+		this.file = file;
+		this.interval = interval;
+		writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "checkpoint-writer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public boolean isDue(int generation) {
+		return interval > 0 && generation % interval == 0;
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Writing
+	//
+	// takes the snapshot synchronously and leaves the disk write to the writer thread
+	public synchronized void write(GP gp) {
+		if (pendingWrite != null && !pendingWrite.isDone()) {
+			skippedWrites++;
+			return;
+		}
+		flush();	// reports a failure of the previous write
+		final ByteBuffer snapshot = snapshot(gp);
+		pendingWrite = writer.submit(new Callable<Void>() {
+			public Void call() throws IOException {
+				writeFile(snapshot);
+				return null;
+			}
+		});
+	}
+
+	// waits for the last checkpoint to be on disk
+	public synchronized void flush() {
+		if (pendingWrite == null)
+			return;
+		try {
+			pendingWrite.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Could not write checkpoint " + file, e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while writing checkpoint " + file, e);
+		} finally {
+			if (pendingWrite.isDone())
+				pendingWrite = null;
+		}
+	}
+
+	// checkpoints skipped because the previous write was still in flight
+	public synchronized int getSkippedWrites() {
+		return skippedWrites;
+	}
+
+	public void close() {
+		flush();
+		writer.shutdown();
+	}
+
+	protected void writeFile(ByteBuffer snapshot) throws IOException {
+		File temporary = new File(file.getPath() + ".tmp");
+		RandomAccessFile output = new RandomAccessFile(temporary, "rw");
+		try {
+			FileChannel channel = output.getChannel();
+			output.setLength(0);
+			while (snapshot.hasRemaining())
+				channel.write(snapshot);
+			channel.force(false);
+		} finally {
+			output.close();
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	protected static ByteBuffer snapshot(GP gp) {
+		Population population = gp.population;
+		boolean semantics = isSemanticsOnly(gp);
+		int trainingLength = gp.data.getTrainingData().length, unseenLength = gp.data.getUnseenData().length;
+		int size = 4 + 4 + 1 + 4 + 8 + 8 + 8 * 7 + 4 + 4;
+		for (int i = 0; i < population.getSize(); i++)
+			size += sizeOf(population.getIndividual(i), gp.initializer, semantics, trainingLength, unseenLength);
+
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.put((byte) (gp instanceof GSGP ? 1 : 0));
+		buffer.putInt(gp.currentGen + 1);	// the generation the resumed run starts with
+		buffer.putLong(gp.seed);
+		buffer.putLong(gp.generationSeed);
+		buffer.putDouble(gp.bloat);
+		buffer.putDouble(gp.avgFit0);
+		buffer.putDouble(gp.avgSize0);
+		buffer.putDouble(gp.overfitting);
+		buffer.putDouble(gp.btp);
+		buffer.putDouble(gp.tbtp);
+		buffer.putDouble(gp instanceof GSGP ? ((GSGP) gp).getMutationStep() : 0.0);
+		buffer.putInt(population.getSize());
+		int bestIndex = 0;
+		for (int i = 0; i < population.getSize(); i++)
+			if (population.getIndividual(i) == gp.currentBest)
+				bestIndex = i;
+		buffer.putInt(bestIndex);
+		for (int i = 0; i < population.getSize(); i++)
+			writeIndividual(buffer, population.getIndividual(i), gp.initializer, semantics, trainingLength,
+					unseenLength);
+		buffer.flip();
+		return buffer;
+	}
+
+	protected static boolean isSemanticsOnly(GP gp) {
+		return gp instanceof GSGP && !Parameters.BUILD_INDIVIDUALS;
+	}
+
+	// bytes taken by writeIndividual
+	protected static int sizeOf(Individual individual, Initializer initializer, boolean semantics,
+			int trainingLength, int unseenLength) {
+		int size = 1 + 4 + 4;
+		if (semantics)
+			size += 4 + 8 * trainingLength + 4 + 8 * unseenLength;
+		else
+			for (int j = 0; j < individual.getSize(); j++)
+				size += isConstant(individual.getProgramElementAtIndex(j), initializer) ? 4 + 8 : 4;
+		return size;
+	}
+
+	protected static void writeIndividual(ByteBuffer buffer, Individual individual, Initializer initializer,
+			boolean semantics, int trainingLength, int unseenLength) {
+		buffer.put(semantics ? SEMANTICS : PROGRAM);
+		buffer.putInt(individual.getSize());
+		buffer.putInt(individual.getDepth());
+		if (!semantics) {
+			for (int i = 0; i < individual.getSize(); i++) {
+				ProgramElement element = individual.getProgramElementAtIndex(i);
+				int opcode = initializer.getOpcode(element);
+				buffer.putInt(opcode >= 0 ? opcode : codeOf(element));
+				if (opcode < 0 && element instanceof Constant)
+					buffer.putDouble(((Constant) element).getValue());
+			}
+		} else {
+			writeSemantics(buffer, GSGP.getTrainingSemantics(individual), GSGP.getTrainingOffset(individual),
+					trainingLength);
+			writeSemantics(buffer, GSGP.getUnseenSemantics(individual), GSGP.getUnseenOffset(individual),
+					unseenLength);
+		}
+	}
+
+	protected static void writeSemantics(ByteBuffer buffer, double[] semantics, int offset, int length) {
+		buffer.putInt(length);
+		buffer.asDoubleBuffer().put(semantics, offset, length);
+		buffer.position(buffer.position() + length * 8);
+	}
+
+	protected static boolean isConstant(ProgramElement element, Initializer initializer) {
+		return initializer.getOpcode(element) < 0 && element instanceof Constant;
+	}
+
+	// elements that GSGP creates outside of the Initializer sets
+	protected static int codeOf(ProgramElement element) {
+		if (element instanceof Addition)
+			return ADDITION;
+		if (element instanceof Subtraction)
+			return SUBTRACTION;
+		if (element instanceof Multiplication)
+			return MULTIPLICATION;
+		if (element instanceof ProtectedDivision)
+			return PROTECTED_DIVISION;
+		if (element instanceof LogisticFunction)
+			return LOGISTIC_FUNCTION;
+		if (element instanceof Constant)
+			return CONSTANT;
+		throw new IllegalArgumentException("Cannot checkpoint program element " + element);
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Reading
+	//
+	public static void restore(File file, GP gp) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			restore(buffer, gp);
+		} finally {
+			input.close();
+		}
+	}
+
+	protected static void restore(ByteBuffer buffer, GP gp) throws IOException {
+		if (buffer.getInt() != MAGIC)
+			throw new IOException("Not a checkpoint file");
+		int version = buffer.getInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported checkpoint version " + version);
+		boolean gsgp = buffer.get() == 1;
+		if (gsgp != (gp instanceof GSGP))
+			throw new IOException("Checkpoint was written by " + (gsgp ? "GSGP" : "GP"));
+
+		gp.currentGen = buffer.getInt();
+		gp.seed = buffer.getLong();
+		gp.generationSeed = buffer.getLong();
+		gp.r = RandomGenerators.create(gp.generationSeed);
+		// split from a generator of its own, so that r is left exactly as it was at the end of the generation
+		gp.initializer = new Initializer(gp.data.getDimensionality(),
+				RandomGenerators.create(gp.generationSeed).split());
+		gp.bloat = buffer.getDouble();
+		gp.avgFit0 = buffer.getDouble();
+		gp.avgSize0 = buffer.getDouble();
+		gp.overfitting = buffer.getDouble();
+		gp.btp = buffer.getDouble();
+		gp.tbtp = buffer.getDouble();
+		double mutationStep = buffer.getDouble();
+		if (gsgp)
+			((GSGP) gp).setMutationStep(mutationStep);
+
+		int populationSize = buffer.getInt();
+		int bestIndex = buffer.getInt();
+		gp.population = new Population();
+		for (int i = 0; i < populationSize; i++) {
+			Individual individual = readIndividual(buffer, gp.initializer);
+			individual.evaluate(gp.data);
+			gp.population.addIndividual(individual);
+		}
+		gp.currentBest = gp.population.getIndividual(bestIndex);
+	}
+
+	protected static Individual readIndividual(ByteBuffer buffer, Initializer initializer) {
+		byte kind = buffer.get();
+		int size = buffer.getInt();
+		int depth = buffer.getInt();
+		Individual individual = kind == PROGRAM ? new LinearIndividual() : new Individual();
+		if (kind == PROGRAM) {
+			ProgramElement[] elements = initializer.getElementTable();
+			for (int i = 0; i < size; i++) {
+				int code = buffer.getInt();
+				individual.addProgramElement(code >= 0 ? elements[code] : readElement(code, buffer));
+			}
+		} else {
+			individual.setTrainingOutputs(readSemantics(buffer));
+			individual.setUnseenOutputs(readSemantics(buffer));
+			individual.setSizeOverride(true);
+			individual.setComputedSize(size);
+		}
+		individual.setDepth(depth);
+		return individual;
+	}
+
+	protected static ProgramElement readElement(int code, ByteBuffer buffer) {
+		switch (code) {
+		case ADDITION:
+			return new Addition();
+		case SUBTRACTION:
+			return new Subtraction();
+		case MULTIPLICATION:
+			return new Multiplication();
+		case PROTECTED_DIVISION:
+			return new ProtectedDivision();
+		case LOGISTIC_FUNCTION:
+			return new LogisticFunction();
+		case CONSTANT:
+			return new Constant(buffer.getDouble());
+		default:
+			throw new IllegalArgumentException("Unknown element code " + code);
+		}
+	}
+
+	protected static double[] readSemantics(ByteBuffer buffer) {
+		double[] semantics = new double[buffer.getInt()];
+		buffer.asDoubleBuffer().get(semantics);
+		buffer.position(buffer.position() + semantics.length * 8);
+		return semantics;
+	}
+	// --------------------------------------------------------------------
+}
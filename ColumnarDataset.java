@@ -0,0 +1,238 @@
+package algorithms;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.regex.Pattern;
+
+import utils.Data;
+
+// Binary, column-major form of a data set, read through memory-mapped buffers. The file starts with a
+// header (magic, version, number of training rows, number of unseen rows, number of columns), followed by
+// the training columns and then the unseen columns, every column being a contiguous run of little-endian
+// doubles; the last column is the target. Mapping a file costs no reading, and runs in different JVMs
+// share the pages through the OS cache. The columns can be evaluated on directly by CompiledProgram;
+// toData() builds the in-heap rows that the rest of the code works on.
+public class ColumnarDataset {
+
+	protected static final int MAGIC = 0x47504344;	// "GPCD"
+	protected static final int VERSION = 1;
+	protected static final int HEADER_SIZE = 64;
+	protected static final Pattern SEPARATORS = Pattern.compile("[\\s,;]+");
+
+	protected int trainingRows, unseenRows, columns;
+	protected DoubleBuffer[] trainingColumns, unseenColumns;
+
+	protected ColumnarDataset() {
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Reading
+	//
+	public static ColumnarDataset open(File file) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC)
+				throw new IOException(file + " is not a columnar data set");
+			int version = header.getInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported columnar data set version " + version);
+			ColumnarDataset dataset = new ColumnarDataset();
+			dataset.trainingRows = header.getInt();
+			dataset.unseenRows = header.getInt();
+			dataset.columns = header.getInt();
+			if (channel.size() != fileSize(dataset.trainingRows, dataset.unseenRows, dataset.columns))
+				throw new IOException(file + " is truncated");
+			// the mappings stay valid once the channel is closed
+			dataset.trainingColumns = mapColumns(channel, HEADER_SIZE, dataset.trainingRows, dataset.columns);
+			dataset.unseenColumns = mapColumns(channel, HEADER_SIZE + 8L * dataset.trainingRows * dataset.columns,
+					dataset.unseenRows, dataset.columns);
+			return dataset;
+		} finally {
+			input.close();
+		}
+	}
+
+	// one mapping per column, since a single mapping is limited to 2 GB
+	protected static DoubleBuffer[] mapColumns(FileChannel channel, long start, int rows, int columns)
+			throws IOException {
+		DoubleBuffer[] mapped = new DoubleBuffer[columns];
+		for (int c = 0; c < columns; c++) {
+			MappedByteBuffer column = channel.map(FileChannel.MapMode.READ_ONLY, start + 8L * rows * c, 8L * rows);
+			mapped[c] = column.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		}
+		return mapped;
+	}
+
+	protected static long fileSize(int trainingRows, int unseenRows, int columns) {
+		return HEADER_SIZE + 8L * ((long) trainingRows + unseenRows) * columns;
+	}
+
+	// copies the columns into the row-major matrices of Data
+	public Data toData() {
+		return new Data(toRows(trainingColumns, trainingRows), toRows(unseenColumns, unseenRows));
+	}
+
+	protected double[][] toRows(DoubleBuffer[] source, int rows) {
+		double[][] matrix = new double[rows][columns];
+		double[] column = new double[Math.min(rows, CompiledProgram.BLOCK_SIZE * 16)];
+		for (int c = 0; c < columns; c++) {
+			for (int start = 0; start < rows; start += column.length) {
+				int length = Math.min(column.length, rows - start);
+				source[c].get(start, column, 0, length);
+				for (int r = 0; r < length; r++)
+					matrix[start + r][c] = column[r];
+			}
+		}
+		return matrix;
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Conversion
+	//
+	// Converts text files with one row per line (numbers separated by white space, commas or semicolons,
+	// target last) into a columnar file. A first line that does not parse is taken as a header. The text is
+	// read twice, once to count the rows, so that the rows can be written straight into their columns.
+	public static void convert(File trainingText, File unseenText, File output) throws IOException {
+		int[] training = count(trainingText), unseen = count(unseenText);
+		if (training[1] != unseen[1])
+			throw new IOException("The training and unseen sets have " + training[1] + " and " + unseen[1]
+					+ " columns");
+		int columns = training[1];
+		RandomAccessFile file = new RandomAccessFile(output, "rw");
+		try {
+			FileChannel channel = file.getChannel();
+			file.setLength(0);
+			file.setLength(fileSize(training[0], unseen[0], columns));
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(training[0]).putInt(unseen[0]).putInt(columns);
+			copy(trainingText, channel, HEADER_SIZE, training[0], columns);
+			copy(unseenText, channel, HEADER_SIZE + 8L * training[0] * columns, unseen[0], columns);
+			channel.force(false);
+		} finally {
+			file.close();
+		}
+	}
+
+	protected static void copy(File text, FileChannel channel, long start, int rows, int columns)
+			throws IOException {
+		MappedByteBuffer[] mapped = new MappedByteBuffer[columns];
+		DoubleBuffer[] destinations = new DoubleBuffer[columns];
+		for (int c = 0; c < columns; c++) {
+			mapped[c] = channel.map(FileChannel.MapMode.READ_WRITE, start + 8L * rows * c, 8L * rows);
+			destinations[c] = mapped[c].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		}
+		BufferedReader reader = new BufferedReader(new FileReader(text));
+		try {
+			int row = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				double[] values = parse(line, row == 0);
+				if (values == null)
+					continue;
+				if (values.length != columns)
+					throw new IOException(text + ": row " + row + " has " + values.length + " columns instead of "
+							+ columns);
+				for (int c = 0; c < columns; c++)
+					destinations[c].put(row, values[c]);
+				row++;
+			}
+		} finally {
+			reader.close();
+		}
+		for (MappedByteBuffer column : mapped)
+			column.force();
+	}
+
+	// number of rows and columns
+	protected static int[] count(File text) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(text));
+		try {
+			int rows = 0, columns = -1;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				double[] values = parse(line, rows == 0);
+				if (values == null)
+					continue;
+				if (columns < 0)
+					columns = values.length;
+				rows++;
+			}
+			if (rows == 0)
+				throw new IOException(text + " has no rows");
+			return new int[] { rows, columns };
+		} finally {
+			reader.close();
+		}
+	}
+
+	// null for blank lines, and for a header before the first row
+	protected static double[] parse(String line, boolean firstRow) throws IOException {
+		String trimmed = line.trim();
+		if (trimmed.isEmpty())
+			return null;
+		String[] fields = SEPARATORS.split(trimmed);
+		double[] values = new double[fields.length];
+		try {
+			for (int i = 0; i < fields.length; i++)
+				values[i] = Double.parseDouble(fields[i]);
+		} catch (NumberFormatException e) {
+			if (firstRow)
+				return null;
+			throw new IOException("Cannot parse line: " + line);
+		}
+		return values;
+	}
+
+	// java algorithms.ColumnarDataset <training text> <unseen text> <output>
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			System.err.println("Usage: ColumnarDataset <training text> <unseen text> <output>");
+			System.exit(1);
+		}
+		convert(new File(args[0]), new File(args[1]), new File(args[2]));
+	}
+	// --------------------------------------------------------------------
+
+	// the mapped columns; the buffers are shared, so use the absolute get methods
+	public DoubleBuffer getTrainingColumn(int column) {
+		return trainingColumns[column];
+	}
+
+	public DoubleBuffer getUnseenColumn(int column) {
+		return unseenColumns[column];
+	}
+
+	public DoubleBuffer[] getTrainingColumns() {
+		return trainingColumns;
+	}
+
+	public DoubleBuffer[] getUnseenColumns() {
+		return unseenColumns;
+	}
+
+	public int getTrainingRows() {
+		return trainingRows;
+	}
+
+	public int getUnseenRows() {
+		return unseenRows;
+	}
+
+	// number of input variables, as taken by Initializer
+	public int getDimensionality() {
+		return columns - 1;
+	}
+}
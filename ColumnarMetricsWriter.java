@@ -0,0 +1,56 @@
+package algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+// Binary file made of column blocks. The header holds a magic number, the number of fields and their
+// names; every block holds the number of records it contains followed by each field as a contiguous
+// run of doubles. A block is written every BLOCK_SIZE records and on flush.
+public class ColumnarMetricsWriter implements MetricsWriter {
+
+	public static final int MAGIC = 0x47504D43;	// "GPMC"
+	public static final int BLOCK_SIZE = 1024;
+
+	protected DataOutputStream output;
+	protected double[][] columns;
+	protected int count;
+
+	public ColumnarMetricsWriter(File file) throws IOException {
+		output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		output.writeInt(MAGIC);
+		output.writeInt(MetricsSink.FIELDS.length);
+		for (String field : MetricsSink.FIELDS)
+			output.writeUTF(field);
+		columns = new double[MetricsSink.FIELDS.length][BLOCK_SIZE];
+	}
+
+	public void write(double[] values) throws IOException {
+		for (int i = 0; i < columns.length; i++)
+			columns[i][count] = values[i];
+		if (++count == BLOCK_SIZE)
+			writeBlock();
+	}
+
+	protected void writeBlock() throws IOException {
+		if (count == 0)
+			return;
+		output.writeInt(count);
+		for (double[] column : columns)
+			for (int i = 0; i < count; i++)
+				output.writeDouble(column[i]);
+		count = 0;
+	}
+
+	public void flush() throws IOException {
+		writeBlock();
+		output.flush();
+	}
+
+	public void close() throws IOException {
+		flush();
+		output.close();
+	}
+}
@@ -0,0 +1,207 @@
+package algorithms;
+
+import java.nio.DoubleBuffer;
+
+import main.Individual;
+import programElements.Addition;
+import programElements.Constant;
+import programElements.InputVariable;
+import programElements.LogisticFunction;
+import programElements.Multiplication;
+import programElements.Operator;
+import programElements.ProgramElement;
+import programElements.ProtectedDivision;
+import programElements.Subtraction;
+import utils.Utils;
+
+// Flat instruction form of an Individual's program. The prefix list is compiled once into the reverse
+// (postfix) order and then evaluated block by block: every instruction processes a whole block of rows
+// in a primitive loop over preallocated stack buffers, so no objects are created per row.
+public class CompiledProgram {
+
+	public static final int BLOCK_SIZE = 256;
+
+	protected static final int CONSTANT = 0, INPUT = 1, ADD = 2, SUB = 3, MUL = 4, DIV = 5, LOGISTIC = 6,
+			GENERIC = 7;
+
+	private static final ThreadLocal<double[][]> scratch = new ThreadLocal<double[][]>();
+
+	protected int[] opcodes;
+	protected int[] inputIndexes;
+	protected double[] constants;
+	protected Operator[] operators;
+	protected int maxStackSize;
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Compilation
+	//
+	// reading a prefix program right to left pushes the arguments of every operator before the operator
+	// itself, with its first argument on top of the stack
+	public static CompiledProgram compile(Individual individual) {
+		int size = individual.getSize();
+		CompiledProgram program = new CompiledProgram();
+		program.opcodes = new int[size];
+		program.inputIndexes = new int[size];
+		program.constants = new double[size];
+		program.operators = new Operator[size];
+
+		int stackSize = 0;
+		for (int i = 0; i < size; i++) {
+			ProgramElement element = individual.getProgramElementAtIndex(size - 1 - i);
+			if (element instanceof Constant) {
+				program.opcodes[i] = CONSTANT;
+				program.constants[i] = ((Constant) element).getValue();
+				stackSize++;
+			} else if (element instanceof InputVariable) {
+				program.opcodes[i] = INPUT;
+				program.inputIndexes[i] = ((InputVariable) element).getIndex();
+				stackSize++;
+			} else {
+				Operator operator = (Operator) element;
+				program.opcodes[i] = opcodeOf(operator);
+				program.operators[i] = operator;
+				stackSize += 1 - operator.getArity();
+			}
+			program.maxStackSize = Math.max(program.maxStackSize, stackSize);
+		}
+		if (stackSize != 1)
+			throw new IllegalArgumentException("Malformed program: " + stackSize + " values left on the stack");
+		return program;
+	}
+
+	protected static int opcodeOf(Operator operator) {
+		if (operator instanceof Addition)
+			return ADD;
+		if (operator instanceof Subtraction)
+			return SUB;
+		if (operator instanceof Multiplication)
+			return MUL;
+		if (operator instanceof ProtectedDivision)
+			return DIV;
+		if (operator instanceof LogisticFunction)
+			return LOGISTIC;
+		return GENERIC;
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Evaluation
+	//
+	public double[] evaluate(double[][] rows) {
+		double[] outputs = new double[rows.length];
+		evaluate(rows, outputs);
+		return outputs;
+	}
+
+	public void evaluate(double[][] rows, double[] outputs) {
+		double[][] stack = getScratch(maxStackSize);
+		for (int start = 0; start < rows.length; start += BLOCK_SIZE) {
+			int length = Math.min(BLOCK_SIZE, rows.length - start);
+			evaluateBlock(rows, null, start, length, stack);
+			System.arraycopy(stack[0], 0, outputs, start, length);
+		}
+	}
+
+	// evaluates on column-major inputs, e.g. the mapped columns of a ColumnarDataset
+	public double[] evaluate(DoubleBuffer[] columns, int numberOfRows) {
+		double[] outputs = new double[numberOfRows];
+		double[][] stack = getScratch(maxStackSize);
+		for (int start = 0; start < numberOfRows; start += BLOCK_SIZE) {
+			int length = Math.min(BLOCK_SIZE, numberOfRows - start);
+			evaluateBlock(null, columns, start, length, stack);
+			System.arraycopy(stack[0], 0, outputs, start, length);
+		}
+		return outputs;
+	}
+
+	// the inputs come either from rows or from columns
+	protected void evaluateBlock(double[][] rows, DoubleBuffer[] columns, int start, int length,
+			double[][] stack) {
+		int top = -1;
+		for (int i = 0; i < opcodes.length; i++) {
+			switch (opcodes[i]) {
+			case CONSTANT: {
+				double[] destination = stack[++top];
+				double value = constants[i];
+				for (int r = 0; r < length; r++)
+					destination[r] = value;
+				break;
+			}
+			case INPUT: {
+				double[] destination = stack[++top];
+				int index = inputIndexes[i];
+				if (columns != null)
+					columns[index].get(start, destination, 0, length);
+				else
+					for (int r = 0; r < length; r++)
+						destination[r] = rows[start + r][index];
+				break;
+			}
+			case ADD: {
+				double[] a = stack[top], b = stack[--top];
+				for (int r = 0; r < length; r++)
+					b[r] = a[r] + b[r];
+				break;
+			}
+			case SUB: {
+				double[] a = stack[top], b = stack[--top];
+				for (int r = 0; r < length; r++)
+					b[r] = a[r] - b[r];
+				break;
+			}
+			case MUL: {
+				double[] a = stack[top], b = stack[--top];
+				for (int r = 0; r < length; r++)
+					b[r] = a[r] * b[r];
+				break;
+			}
+			case DIV: {
+				// same protection as ProtectedDivision: a zero denominator yields 1
+				double[] a = stack[top], b = stack[--top];
+				for (int r = 0; r < length; r++)
+					b[r] = b[r] == 0.0 ? 1.0 : a[r] / b[r];
+				break;
+			}
+			case LOGISTIC: {
+				double[] a = stack[top];
+				for (int r = 0; r < length; r++)
+					a[r] = Utils.logisticFunction(a[r]);
+				break;
+			}
+			default:
+				top = evaluateGeneric(operators[i], length, stack, top);
+			}
+		}
+	}
+
+	// operators without a dedicated opcode are applied row by row through performOperation
+	protected int evaluateGeneric(Operator operator, int length, double[][] stack, int top) {
+		int arity = operator.getArity();
+		double[] arguments = new double[arity];
+		int destination = top - arity + 1;
+		for (int r = 0; r < length; r++) {
+			for (int a = 0; a < arity; a++)
+				arguments[a] = stack[top - a][r];
+			stack[destination][r] = operator.performOperation(arguments);
+		}
+		return destination;
+	}
+
+	private static double[][] getScratch(int stackSize) {
+		double[][] stack = scratch.get();
+		if (stack == null || stack.length < stackSize) {
+			stack = new double[Math.max(stackSize, 16)][BLOCK_SIZE];
+			scratch.set(stack);
+		}
+		return stack;
+	}
+	// --------------------------------------------------------------------
+
+	public int getMaxStackSize() {
+		return maxStackSize;
+	}
+
+	public int getLength() {
+		return opcodes.length;
+	}
+}
@@ -0,0 +1,39 @@
+package algorithms;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+// One line per record, with a header line holding the field names
+public class CsvMetricsWriter implements MetricsWriter {
+
+	protected BufferedWriter writer;
+
+	public CsvMetricsWriter(File file) throws IOException {
+		writer = new BufferedWriter(new FileWriter(file));
+		writer.write(String.join(",", MetricsSink.FIELDS));
+		writer.newLine();
+	}
+
+	public void write(double[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0)
+				writer.write(',');
+			// all fields other than the errors, bloat and overfitting are integral
+			if (i >= 2 && i <= 3 || i >= 6 && i <= 7)
+				writer.write(Double.toString(values[i]));
+			else
+				writer.write(Long.toString((long) values[i]));
+		}
+		writer.newLine();
+	}
+
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	public void close() throws IOException {
+		writer.close();
+	}
+}
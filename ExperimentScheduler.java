@@ -0,0 +1,194 @@
+package algorithms;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.random.RandomGenerator;
+
+import main.Individual;
+import utils.Data;
+
+// Runs many independent GP/GSGP runs concurrently on a bounded work-stealing pool. The runs of all
+// configurations are submitted together, so idle workers pick up runs of any configuration. Every run
+// gets its own seed, drawn in submission order from the master seed, and its own metrics output; the
+// Data of a configuration is shared read-only by its runs. Once all runs finish, the final best
+// individuals are summarized per configuration. The runs share the static Parameters, so those have to be
+// set before run(); settings that differ between configurations go through the setters of the runs. The
+// state a run prints every generation is labelled <configuration>-<run>.
+public class ExperimentScheduler {
+
+	// creates the run of a configuration, e.g. new GSGP(data, run, seed, metrics) followed by its settings;
+	// the run number and the sink have to be passed to the constructor, which already records the initial
+	// generation, so that the run never writes to the shared Main.output
+	public interface RunFactory {
+		GP create(Data data, int run, long seed, MetricsSink metrics);
+	}
+
+	protected static class Configuration {
+		protected String name;
+		protected Data data;
+		protected int runs, generations;
+		protected RunFactory factory;
+		protected double[][] results;	// [run][training error, unseen error, size, depth]
+	}
+
+	protected int workers;
+	protected long seed;
+	protected File metricsDirectory;
+	protected List<Configuration> configurations;
+
+	public ExperimentScheduler(int workers, long seed) {
+		this.workers = workers;
+		this.seed = seed;
+		configurations = new ArrayList<Configuration>();
+	}
+
+	public void addConfiguration(String name, Data data, int runs, int generations, RunFactory factory) {
+		Configuration configuration = new Configuration();
+		configuration.name = name;
+		configuration.data = data;
+		configuration.runs = runs;
+		configuration.generations = generations;
+		configuration.factory = factory;
+		configuration.results = new double[runs][];
+		configurations.add(configuration);
+	}
+
+	// each run writes its metrics to <directory>/<configuration>-<run>.csv; without a directory they are dropped
+	public void setMetricsDirectory(File metricsDirectory) {
+		this.metricsDirectory = metricsDirectory;
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Execution
+	//
+	public String run() {
+		ForkJoinPool pool = new ForkJoinPool(workers);
+		RandomGenerator r = RandomGenerators.create(seed);
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+		try {
+			// interleave the configurations so that every one of them makes progress from the start
+			int maximumRuns = 0;
+			for (Configuration configuration : configurations)
+				maximumRuns = Math.max(maximumRuns, configuration.runs);
+			for (int run = 0; run < maximumRuns; run++) {
+				for (final Configuration configuration : configurations) {
+					if (run >= configuration.runs)
+						continue;
+					final int runNumber = run;
+					final long runSeed = r.nextLong();
+					tasks.add(pool.submit(new Runnable() {
+						public void run() {
+							execute(configuration, runNumber, runSeed);
+						}
+					}));
+				}
+			}
+			for (ForkJoinTask<?> task : tasks)
+				task.join();
+		} finally {
+			pool.shutdown();
+		}
+		return summarize();
+	}
+
+	protected void execute(Configuration configuration, int run, long runSeed) {
+		MetricsSink metrics = createMetricsSink(configuration, run);
+		GP gp = null;
+		try {
+			gp = configuration.factory.create(configuration.data, run, runSeed, metrics);
+			gp.setLabel(configuration.name + "-" + run);
+			gp.search(configuration.generations);
+			Individual best = gp.getCurrentBest();
+			configuration.results[run] = new double[] { best.getTrainingError(), best.getUnseenError(),
+					best.getSize(), best.getDepth() };
+		} finally {
+			if (gp != null)
+				gp.shutdown();
+			metrics.close();
+		}
+	}
+
+	protected MetricsSink createMetricsSink(Configuration configuration, int run) {
+		return createMetricsSink(metricsDirectory, configuration.name + "-" + run);
+	}
+
+	// a CSV sink writing <directory>/<name>.csv in the background, or one that drops everything
+	protected static MetricsSink createMetricsSink(File directory, String name) {
+		if (directory == null) {
+			return new MetricsSink() {
+				public void record(double[] values) {
+				}
+
+				public void close() {
+				}
+			};
+		}
+		File file = new File(directory, name + ".csv");
+		try {
+			return new AsyncMetricsSink(new CsvMetricsWriter(file), 256);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not create " + file, e);
+		}
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Summary
+	//
+	// median, mean and standard deviation over the runs of every configuration
+	protected String summarize() {
+		StringBuilder summary = new StringBuilder();
+		summary.append(String.format("%-20s %5s %30s %30s %20s\n", "Configuration", "Runs",
+				"Training error (med/avg/sd)", "Unseen error (med/avg/sd)", "Size (med/avg)"));
+		for (Configuration configuration : configurations) {
+			double[] training = column(configuration, 0), unseen = column(configuration, 1),
+					size = column(configuration, 2);
+			summary.append(String.format("%-20s %5d %10.4f%10.4f%10.4f %10.4f%10.4f%10.4f %10.1f%10.1f\n",
+					configuration.name, configuration.runs, median(training), mean(training),
+					standardDeviation(training), median(unseen), mean(unseen), standardDeviation(unseen),
+					median(size), mean(size)));
+		}
+		return summary.toString();
+	}
+
+	public double[][] getResults(String configurationName) {
+		for (Configuration configuration : configurations)
+			if (configuration.name.equals(configurationName))
+				return configuration.results;
+		return null;
+	}
+
+	protected static double[] column(Configuration configuration, int index) {
+		double[] values = new double[configuration.runs];
+		for (int run = 0; run < configuration.runs; run++)
+			values[run] = configuration.results[run][index];
+		return values;
+	}
+
+	protected static double mean(double[] values) {
+		double sum = 0.0;
+		for (double value : values)
+			sum += value;
+		return sum / values.length;
+	}
+
+	protected static double standardDeviation(double[] values) {
+		double mean = mean(values), sum = 0.0;
+		for (double value : values)
+			sum += (value - mean) * (value - mean);
+		return Math.sqrt(sum / values.length);
+	}
+
+	protected static double median(double[] values) {
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int middle = sorted.length / 2;
+		return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2.0;
+	}
+	// --------------------------------------------------------------------
+}
@@ -0,0 +1,61 @@
+package algorithms;
+
+import java.util.random.RandomGenerator;
+
+import main.Population;
+import utils.Data;
+
+// Roulette wheel selection with weights 1 / (1 + training error). The wheel is an alias table (Vose's
+// method) built once per generation, so every selection takes constant time.
+public class FitnessProportionateSelection implements Selection {
+
+	private static final long serialVersionUID = 7L;
+
+	protected transient double[] probabilities;
+	protected transient int[] aliases;
+	protected int populationSize;
+
+	public void prepare(Population population, Data data) {
+		populationSize = population.getSize();
+		if (probabilities == null || probabilities.length < populationSize) {
+			probabilities = new double[populationSize];
+			aliases = new int[populationSize];
+		}
+
+		double totalWeight = 0.0;
+		for (int i = 0; i < populationSize; i++) {
+			probabilities[i] = 1.0 / (1.0 + population.getIndividual(i).getTrainingError());
+			totalWeight += probabilities[i];
+		}
+
+		// scale the weights so that their mean is 1 and split them into the small and large work lists
+		int[] small = new int[populationSize], large = new int[populationSize];
+		int smallCount = 0, largeCount = 0;
+		for (int i = 0; i < populationSize; i++) {
+			probabilities[i] = probabilities[i] * populationSize / totalWeight;
+			if (probabilities[i] < 1.0)
+				small[smallCount++] = i;
+			else
+				large[largeCount++] = i;
+		}
+		while (smallCount > 0 && largeCount > 0) {
+			int less = small[--smallCount], more = large[--largeCount];
+			aliases[less] = more;
+			probabilities[more] = (probabilities[more] + probabilities[less]) - 1.0;
+			if (probabilities[more] < 1.0)
+				small[smallCount++] = more;
+			else
+				large[largeCount++] = more;
+		}
+		// whatever is left is 1 up to rounding errors
+		while (largeCount > 0)
+			probabilities[large[--largeCount]] = 1.0;
+		while (smallCount > 0)
+			probabilities[small[--smallCount]] = 1.0;
+	}
+
+	public int select(RandomGenerator random) {
+		int column = random.nextInt(populationSize);
+		return random.nextDouble() < probabilities[column] ? column : aliases[column];
+	}
+}
@@ -1,7 +1,15 @@
 package algorithms;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
 import main.Individual;
 import main.Main;
 import main.Population;
@@ -14,20 +22,63 @@ public class GP implements Serializable {
 	//
 	private static final long serialVersionUID = 7L;
 	protected int currentGen;
-	protected Random r;
+	protected SplittableGenerator r;
+	protected long seed, generationSeed;	// r is created from generationSeed at the end of every generation
 	protected Data data;
 	protected Initializer initializer;
 	protected Individual currentBest;
 	protected Population population;
 	protected double bloat, avgFit0, avgSize0, overfitting, btp, tbtp;
+	protected int threads;
+	protected transient ForkJoinPool pool;
+	protected boolean compiledEvaluation;
+	protected transient SubtreeCache subtreeCache;
+	protected MiniBatch miniBatch;
+	protected transient int[] batchRows;
+	protected transient Data evaluationData;	// the training rows offspring are evaluated on
+	protected transient Migration migration;
+	protected Selection selection;
+	protected transient Checkpoint checkpoint;
+	protected transient MetricsSink metrics;
+	protected transient LongAdder[] stageTimes;	// per Profiler stage, reported by the metrics and the profiler
+	protected transient LongAdder evaluations;
+	protected transient List<StoppingCriterion> stoppingCriteria;
+	protected transient StoppingCriterion metCriterion;
+	protected transient Profiler profiler;
+	protected int run;
+	protected transient String label;	// printed with the state of every generation
 
 	public GP(Data data) {
+		this(data, RandomGenerators.createSeed());
+	}
+
+	public GP(Data data, long seed) {
+		this(data, seed, null);
+	}
+
+	// with a metrics sink, the initial generation is recorded there instead of in Main.output
+	public GP(Data data, long seed, MetricsSink metrics) {
+		this(data, Main.currentRun, seed, metrics);
+	}
+
+	// the run number is written with the metrics of every generation, from the initial one on
+	public GP(Data data, int run, long seed, MetricsSink metrics) {
 		this.data = data;
-		r = new Random();
+		evaluationData = data;
+		this.seed = seed;
+		r = RandomGenerators.create(seed);
+		threads = 1;
+		selection = new TournamentSelection(Parameters.VAR_TOUR_PR);
+		this.run = run;
+		this.metrics = metrics;
+		resetStageTimes();
+		evaluations = new LongAdder();
+		stoppingCriteria = new ArrayList<StoppingCriterion>();
 
-		initializer = new Initializer(data.getDimensionality());
+		initializer = new Initializer(data.getDimensionality(), r.split());
 		population = initializer.rampedHalfAndHalfInitialization(Parameters.EA_PSIZE, Parameters.IN_DEPTH_LIM);
 		population.evaluate(data);
+		evaluations.add(population.getSize());
 
 		bloat = overfitting = 0;
 		avgFit0 = population.getAVGFitness();
@@ -36,86 +87,286 @@ public class GP implements Serializable {
 		btp = currentBest.getUnseenError();
 		tbtp = currentBest.getTrainingError();
 
-		printState();
 		currentGen = 1;
 		addValue();
 	}
+
+	// resumes the run saved in a file written by Checkpoint; search continues with the next generation
+	public GP(Data data, File checkpointFile) throws IOException {
+		this.data = data;
+		evaluationData = data;
+		threads = 1;
+		selection = new TournamentSelection(Parameters.VAR_TOUR_PR);
+		run = Main.currentRun;
+		resetStageTimes();
+		evaluations = new LongAdder();
+		stoppingCriteria = new ArrayList<StoppingCriterion>();
+		Checkpoint.restore(checkpointFile, this);
+	}
 	// --------------------------------------------------------------------
 
 	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
 	// Evolution
 	//
+	// runs up to generation numberOfGen, or until one of the stopping criteria is met
 	public void search(int numberOfGen) {	
+		metCriterion = null;
+		for (StoppingCriterion criterion : stoppingCriteria)
+			criterion.start(this);
+		// the initial population, printed here rather than in the constructor to carry the label
+		if (currentGen == 1)
+			printState(0);
 		for (; currentGen <= numberOfGen; currentGen++) {
-			Population offspring = new Population();
-			while (offspring.getSize() < population.getSize()) {
-				Individual p1, newIndividual;
-				p1 = tournamentSelection();
-				// apply crossover or mutation
-				if (r.nextDouble() < Parameters.VAR_XOVER_PROB) {
-					Individual p2 = tournamentSelection();
-					newIndividual = crossover(p1, p2);
-				} else
-					newIndividual = mutation(p1);
-
-				if (Parameters.VAR_APPLY_DEPTH_LIM && newIndividual.getDepth() > Parameters.VAR_DEPTH_LIM)
-					newIndividual = p1;		// discard the new individual as it is beyond the depth limit
-				else
-					newIndividual.evaluate(data);
-
-				offspring.addIndividual(newIndividual);
+			if (miniBatch != null)
+				startBatch();
+			long mark = beginStage(Profiler.SELECTION);
+			selection.prepare(population, evaluationData);
+			endStage(Profiler.SELECTION, mark);
+			Population offspring;
+			if (threads > 1)
+				offspring = breedParallel();
+			else {
+				offspring = new Population();
+				while (offspring.getSize() < population.getSize())
+					offspring.addIndividual(breed(r.split()));
 			}
+			mark = beginStage(Profiler.REPLACEMENT);
 			population = replacement(offspring);
+			if (migration != null)
+				population = migration.migrate(this, population);
+			endStage(Profiler.REPLACEMENT, mark);
 			updateCurrentBest();
 			computeBloat();
 			computeOverfitting();
-			printState();
+			printState(currentGen);
 			addValue();
+			if (profiler != null)
+				profiler.endGeneration(run, currentGen, currentBest.getTrainingError());
+			// with or without checkpoints, so that a checkpoint does not change the numbers the run draws
+			generationSeed = r.nextLong();
+			r = RandomGenerators.create(generationSeed);
+			if (checkpoint != null && checkpoint.isDue(currentGen))
+				checkpoint.write(this);
+			if (isStoppingCriterionMet()) {
+				currentGen++;
+				// the islands this one sends to would otherwise wait for its emigrants forever
+				if (migration != null)
+					finishMigration();
+				break;
+			}
+		}
+		if (checkpoint != null)
+			checkpoint.flush();
+		if (Parameters.IO_APPLY_PRINT_GEN)
+			AsyncPrinter.CONSOLE.flush();
+	}
+
+	// creates and evaluates a single offspring, drawing all randomness from the given generator
+	protected Individual breed(RandomGenerator random) {
+		Individual p1, newIndividual;
+		long mark = beginStage(Profiler.SELECTION);
+		p1 = select(random);
+		// apply crossover or mutation
+		boolean crossover = random.nextDouble() < Parameters.VAR_XOVER_PROB;
+		Individual p2 = crossover ? select(random) : null;
+		endStage(Profiler.SELECTION, mark);
+		mark = beginStage(Profiler.VARIATION);
+		if (crossover)
+			newIndividual = crossover(p1, p2, random);
+		else
+			newIndividual = mutation(p1, random);
+		endStage(Profiler.VARIATION, mark);
+
+		if (Parameters.VAR_APPLY_DEPTH_LIM && newIndividual.getDepth() > Parameters.VAR_DEPTH_LIM)
+			newIndividual = p1;		// discard the new individual as it is beyond the depth limit
+		else {
+			mark = beginStage(Profiler.EVALUATION);
+			evaluate(newIndividual);
+			endStage(Profiler.EVALUATION, mark);
+			evaluations.increment();
+			if (!crossover)
+				mutationEvaluated(p1, newIndividual);
 		}
+
+		return newIndividual;
+	}
+
+	protected void finishMigration() {
+		try {
+			migration.finish();
+		} catch (IOException e) {
+			throw new IllegalStateException("Island " + migration.getIsland() + " could not finish its migration", e);
+		}
+	}
+
+	// called for every mutation offspring once it is evaluated, possibly concurrently
+	protected void mutationEvaluated(Individual parent, Individual offspring) {
+	}
+
+	// Every stage is timed once, on the thread that runs it, and only with a metrics sink or a profiler;
+	// the time goes to the timer of the stage and to the profiler. beginStage returns the mark for endStage.
+	protected long beginStage(int stage) {
+		if (profiler != null)
+			profiler.begin(stage);
+		return metrics == null && profiler == null ? 0L : System.nanoTime();
+	}
+
+	protected void endStage(int stage, long mark) {
+		if (metrics == null && profiler == null)
+			return;
+		long time = System.nanoTime() - mark;
+		stageTimes[stage].add(time);
+		if (profiler != null)
+			profiler.end(stage, time);
+	}
+
+	// The offspring slots are split into one contiguous chunk per thread. Every slot gets its own generator,
+	// split from r in slot order as in the sequential loop, so a run is reproducible for a given seed at any
+	// number of threads.
+	protected Population breedParallel() {
+		final Individual[] newIndividuals = new Individual[population.getSize()];
+		final RandomGenerator[] generators = new RandomGenerator[newIndividuals.length];
+		for (int i = 0; i < generators.length; i++)
+			generators[i] = r.split();
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[threads];
+		for (int t = 0; t < threads; t++) {
+			final int start = (int) ((long) newIndividuals.length * t / threads);
+			final int end = (int) ((long) newIndividuals.length * (t + 1) / threads);
+			tasks[t] = getPool().submit(new Runnable() {
+				public void run() {
+					for (int i = start; i < end; i++)
+						newIndividuals[i] = breed(generators[i]);
+				}
+			});
+		}
+		for (ForkJoinTask<?> task : tasks)
+			task.join();
+
+		Population offspring = new Population();
+		for (Individual newIndividual : newIndividuals)
+			offspring.addIndividual(newIndividual);
+		return offspring;
+	}
+
+	protected ForkJoinPool getPool() {
+		if (pool == null)
+			pool = new ForkJoinPool(threads);
+		return pool;
 	}
 	// --------------------------------------------------------------------
 
 	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
-	// Selection
+	// Evaluation
 	//
-	protected Individual tournamentSelection() {
-		Population tournamentPopulation = new Population(); 	
-		int tournamentSize = (int) (Parameters.VAR_TOUR_PR * population.getSize());  //100 individuals initially
-		for (int i = 0; i < tournamentSize; i++)
-			tournamentPopulation.addIndividual(population.getIndividual(r.nextInt(population.getSize())));
-		return tournamentPopulation.getBest();
+	protected void evaluate(Individual individual) {
+		evaluate(individual, evaluationData);
+	}
+
+	// With mini-batches, an individual is evaluated on different rows over its life, so its outputs are
+	// always recomputed: through the cache for the full data set, and compiled otherwise. Without an unseen
+	// set (a batch), the unseen error is NaN.
+	protected void evaluate(Individual individual, Data data) {
+		countEvaluation(individual.getSize(), data);
+		if (subtreeCache != null && data == this.data) {
+			double[][] outputs = subtreeCache.evaluate(LinearProgram.fromIndividual(individual, initializer));
+			individual.setTrainingOutputs(outputs[0]);
+			individual.setUnseenOutputs(outputs[1]);
+			int size = individual.getSize();
+			individual.setSizeOverride(true);
+			individual.setComputedSize(size);
+		} else if (compiledEvaluation || miniBatch != null) {
+			CompiledProgram program = CompiledProgram.compile(individual);
+			individual.setTrainingOutputs(program.evaluate(data.getTrainingData()));
+			individual.setUnseenOutputs(program.evaluate(data.getUnseenData()));
+			// with the size overridden, Individual.evaluate only computes the errors of the outputs set above
+			int size = individual.getSize();
+			individual.setSizeOverride(true);
+			individual.setComputedSize(size);
+		}
+		individual.evaluate(data);
+	}
+
+	// counts, for the profiler, an evaluation of the given number of nodes on all rows of the data
+	protected void countEvaluation(long nodes, Data data) {
+		if (profiler != null)
+			profiler.countEvaluation(nodes, data.getTrainingData().length + data.getUnseenData().length);
 	}
 	// --------------------------------------------------------------------
 
 	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
-	// Variation
+	// Mini-batches
 	//
-	protected Individual crossover(Individual p1, Individual p2) {
-		int p1CrossoverStart = r.nextInt(p1.getSize());
-		int p1ElementsToEnd = p1.countElementsToEnd(p1CrossoverStart);
-		int p2CrossoverStart = r.nextInt(p2.getSize());
-		int p2ElementsToEnd = p2.countElementsToEnd(p2CrossoverStart);
+	// draws the rows of the generation and evaluates the population on them, so that parents and offspring
+	// are selected and compared on the same rows
+	protected void startBatch() {
+		batchRows = miniBatch.sample(data.getTrainingData(), currentGen, r);
+		evaluationData = new Data(MiniBatch.select(data.getTrainingData(), batchRows), new double[0][]);
+		if (threads > 1) {
+			ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[threads];
+			for (int t = 0; t < threads; t++) {
+				final int start = (int) ((long) population.getSize() * t / threads);
+				final int end = (int) ((long) population.getSize() * (t + 1) / threads);
+				tasks[t] = getPool().submit(new Runnable() {
+					public void run() {
+						for (int i = start; i < end; i++)
+							evaluateOnBatch(population.getIndividual(i));
+					}
+				});
+			}
+			for (ForkJoinTask<?> task : tasks)
+				task.join();
+		} else
+			for (int i = 0; i < population.getSize(); i++)
+				evaluateOnBatch(population.getIndividual(i));
+	}
 
-		Individual offspring = p1.selectiveDeepCopy(p1CrossoverStart, p1CrossoverStart + p1ElementsToEnd - 1);
+	protected void evaluateOnBatch(Individual individual) {
+		evaluate(individual, evaluationData);
+	}
 
-		for (int i = 0; i < p2ElementsToEnd; i++)
-			offspring.addProgramElementAtIndex(p2.getProgramElementAtIndex(p2CrossoverStart + i), p1CrossoverStart + i);
+	// the elite is evaluated on all rows, so the reported errors are exact
+	protected void evaluateFully(Individual individual) {
+		evaluate(individual, data);
+	}
 
-		offspring.calculateDepth();
-		return offspring;
+	// an individual received from another island, decoded with the element tables of this run
+	protected Individual adoptImmigrant(Individual immigrant) {
+		evaluateFully(immigrant);
+		return immigrant;
 	}
+	// --------------------------------------------------------------------
 
-	protected Individual mutation(Individual p) {
-		int mutationPoint = r.nextInt(p.getSize());
-		int parentElementsToEnd = p.countElementsToEnd(mutationPoint);
-		Individual offspring = p.selectiveDeepCopy(mutationPoint, mutationPoint + parentElementsToEnd - 1);
-		Individual randomTree = initializer.grow(Parameters.IN_DEPTH_LIM);
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Selection
+	//
+	protected Individual select(RandomGenerator random) {
+		return population.getIndividual(selection.select(random));
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Variation
+	//
+	protected Individual crossover(Individual p1, Individual p2, RandomGenerator random) {
+		int p1CrossoverStart = random.nextInt(p1.getSize());
+		int p2CrossoverStart = random.nextInt(p2.getSize());
+		LinearProgram parent1 = LinearProgram.fromIndividual(p1, initializer);
+		LinearProgram parent2 = LinearProgram.fromIndividual(p2, initializer);
+		return parent1.replaceSubtree(p1CrossoverStart, parent2, p2CrossoverStart).toIndividual();
+	}
 
-		for (int i = 0; i < randomTree.getSize(); i++)
-			offspring.addProgramElementAtIndex(randomTree.getProgramElementAtIndex(i), mutationPoint + i);
+	protected Individual mutation(Individual p, RandomGenerator random) {
+		int mutationPoint = random.nextInt(p.getSize());
+		LinearProgram parent = LinearProgram.fromIndividual(p, initializer);
+		LinearProgram randomTree = LinearProgram.fromIndividual(growRandomTree(random), initializer);
+		return parent.replaceSubtree(mutationPoint, randomTree, 0).toIndividual();
+	}
 
-		offspring.calculateDepth();
-		return offspring;
+	protected Individual growRandomTree(RandomGenerator random) {
+		long mark = beginStage(Profiler.RANDOM_TREES);
+		Individual randomTree = initializer.grow(Parameters.IN_DEPTH_LIM, random);
+		endStage(Profiler.RANDOM_TREES, mark);
+		return randomTree;
 	}
 
 	// this replacement implements elitism
@@ -132,9 +383,11 @@ public class GP implements Serializable {
 
 		nextGeneration.addIndividual(elit);
 		for (int i = 0; i < offspring.getSize(); i++) {
-			if (offspring.getIndividual(i).getId() != elit.getId())
+			if (offspring.getIndividual(i) != elit)
 				nextGeneration.addIndividual(offspring.getIndividual(i));
 		}
+		if (miniBatch != null)
+			evaluateFully(elit);
 		return nextGeneration;
 	}
 	// --------------------------------------------------------------------
@@ -164,7 +417,25 @@ public class GP implements Serializable {
 	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
 	// Other
 	//
+	protected boolean isStoppingCriterionMet() {
+		for (StoppingCriterion criterion : stoppingCriteria) {
+			if (criterion.isMet(this)) {
+				metCriterion = criterion;
+				return true;
+			}
+		}
+		return false;
+	}
+
 	protected void addValue() {
+		if (metrics != null) {
+			metrics.record(new double[] { run, currentGen, currentBest.getTrainingError(),
+					currentBest.getUnseenError(), currentBest.getSize(), currentBest.getDepth(), bloat, overfitting,
+					stageTimes[Profiler.SELECTION].sumThenReset(), stageTimes[Profiler.VARIATION].sumThenReset(),
+					stageTimes[Profiler.EVALUATION].sumThenReset(), stageTimes[Profiler.REPLACEMENT].sumThenReset() });
+			stageTimes[Profiler.RANDOM_TREES].reset();	// part of variation
+			return;
+		}
 		Main.output[Main.outputCount][0] = Main.currentRun;
 		Main.output[Main.outputCount][1] = currentGen;
 		Main.output[Main.outputCount][2] = currentBest.getTrainingError();
@@ -175,16 +446,23 @@ public class GP implements Serializable {
 		Main.output[Main.outputCount++][7] = overfitting;
 	}
 
+	// with mini-batches, the other individuals only have errors on the batch, so the best one is the elite,
+	// which replacement puts first
 	protected void updateCurrentBest() {
-		currentBest = population.getBest();
+		if (miniBatch != null)
+			currentBest = population.getIndividual(0);
+		else
+			currentBest = population.getBest();
 	}
 
-	protected void printState() {
+	// formatted and printed by AsyncPrinter.CONSOLE, one message per generation; search waits for the
+	// messages of its run before it returns
+	protected void printState(int generation) {
 		if (Parameters.IO_APPLY_PRINT_GEN) {
-			System.out.println("\nBest at generation:\t\t" + currentGen);
-			System.out.printf("Training error:\t\t%.2f\nUnseen error:\t\t%.2f\nSize:\t\t\t%d\nDepth:\t\t\t%d\n",
-					currentBest.getTrainingError(), currentBest.getUnseenError(), currentBest.getSize(),
-					currentBest.getDepth());
+			AsyncPrinter.CONSOLE.printf("\n%sBest at generation:\t\t%d\n"
+					+ "Training error:\t\t%.2f\nUnseen error:\t\t%.2f\nSize:\t\t\t%d\nDepth:\t\t\t%d\n",
+					label == null ? "" : "[" + label + "] ", generation, currentBest.getTrainingError(),
+					currentBest.getUnseenError(), currentBest.getSize(), currentBest.getDepth());
 		}
 	}
 
@@ -195,4 +473,174 @@ public class GP implements Serializable {
 	public Population getPopulation() {
 		return population;
 	}
+
+	// the seed the run was created with, which reproduces it at any number of threads
+	public long getSeed() {
+		return seed;
+	}
+
+	// the current best individual as a class of its own, for scoring new data; see PredictorCompiler
+	public Predictor compilePredictor() {
+		return PredictorCompiler.compile(currentBest);
+	}
+
+	// the generation the next search call starts with
+	public int getCurrentGeneration() {
+		return currentGen;
+	}
+
+	public double getOverfitting() {
+		return overfitting;
+	}
+
+	// individuals evaluated since the run was created or resumed (offspring discarded for their depth are not)
+	public long getEvaluations() {
+		return evaluations.sum();
+	}
+
+	public void addStoppingCriterion(StoppingCriterion criterion) {
+		stoppingCriteria.add(criterion);
+	}
+
+	public void clearStoppingCriteria() {
+		stoppingCriteria.clear();
+	}
+
+	// the criterion that ended the last search call, or null if it ran all its generations
+	public StoppingCriterion getMetCriterion() {
+		return metCriterion;
+	}
+
+	public boolean isCompiledEvaluation() {
+		return compiledEvaluation;
+	}
+
+	// switches between the node by node interpreter of Individual and CompiledProgram
+	public void setCompiledEvaluation(boolean compiledEvaluation) {
+		this.compiledEvaluation = compiledEvaluation;
+	}
+
+	public Migration getMigration() {
+		return migration;
+	}
+
+	// exchanges individuals with other islands after replacement; see Migration
+	public void setMigration(Migration migration) {
+		this.migration = migration;
+	}
+
+	public MiniBatch getMiniBatch() {
+		return miniBatch;
+	}
+
+	// evaluates offspring on a batch of the training rows drawn every generation; null evaluates on all rows
+	public void setMiniBatch(MiniBatch miniBatch) {
+		if (miniBatch == null && this.miniBatch != null) {
+			// back to all rows: the errors of the population are on the last batch
+			for (int i = 0; i < population.getSize(); i++)
+				evaluateFully(population.getIndividual(i));
+			batchRows = null;
+			evaluationData = data;
+		}
+		this.miniBatch = miniBatch;
+		if (miniBatch == null)
+			updateCurrentBest();
+	}
+
+	public SubtreeCache getSubtreeCache() {
+		return subtreeCache;
+	}
+
+	// Evaluates offspring through a cache of subtree outputs of at most maximumBytes, which takes precedence
+	// over compiled evaluation; 0 disables it. The current population is evaluated through the cache once:
+	// a first computation only records the fingerprints of the subtrees, so a subtree of a parent gets an
+	// entry as soon as the first offspring that inherits it is evaluated.
+	public void setSubtreeCache(long maximumBytes) {
+		if (maximumBytes <= 0) {
+			subtreeCache = null;
+			return;
+		}
+		subtreeCache = new SubtreeCache(data, initializer, maximumBytes);
+		for (int i = 0; i < population.getSize(); i++)
+			subtreeCache.evaluate(LinearProgram.fromIndividual(population.getIndividual(i), initializer));
+	}
+
+	// writes the state of the run to the file every interval generations, in the background
+	public void setCheckpoint(File file, int interval) {
+		if (checkpoint != null)
+			checkpoint.close();
+		checkpoint = file == null ? null : new Checkpoint(file, interval);
+	}
+
+	public MetricsSink getMetricsSink() {
+		return metrics;
+	}
+
+	// Sends the per-generation values to the sink instead of Main.output, together with the time spent in
+	// each stage of the generation. Set before the search to get the initial generation recorded as well.
+	public void setMetricsSink(MetricsSink metrics) {
+		this.metrics = metrics;
+		resetStageTimes();
+		if (metrics != null && currentGen == 1)
+			addValue();
+	}
+
+	protected void resetStageTimes() {
+		stageTimes = new LongAdder[Profiler.STAGES];
+		for (int s = 0; s < stageTimes.length; s++)
+			stageTimes[s] = new LongAdder();
+	}
+
+	public Profiler getProfiler() {
+		return profiler;
+	}
+
+	// instruments the stages of every generation; null (the default) turns the instrumentation off
+	public void setProfiler(Profiler profiler) {
+		this.profiler = profiler;
+	}
+
+	public int getRun() {
+		return run;
+	}
+
+	// the run number written with the metrics; Main.currentRun unless the run was created with one
+	public void setRun(int run) {
+		this.run = run;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	// prefixes the printed state of every generation, to tell concurrent runs apart
+	public void setLabel(String label) {
+		this.label = label;
+	}
+
+	public Selection getSelection() {
+		return selection;
+	}
+
+	// tournament selection (VAR_TOUR_PR) unless set otherwise
+	public void setSelection(Selection selection) {
+		this.selection = selection;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+		shutdown();
+	}
+
+	// stops the worker threads once a run is over; a later search starts them again
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
 }
@@ -1,6 +1,13 @@
 package algorithms;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.random.RandomGenerator;
+
 import main.Individual;
+import main.Population;
 import programElements.Addition;
 import programElements.Constant;
 import programElements.LogisticFunction;
@@ -8,7 +15,6 @@ import programElements.Multiplication;
 import programElements.Subtraction;
 import utils.Data;
 import utils.Parameters;
-import utils.Utils;
 
 public class GSGP extends GP {
 
@@ -16,22 +22,116 @@ public class GSGP extends GP {
 
 	protected double mutationStep;
 	protected boolean boundMutation;
+	protected SemanticStore semanticStore;
+	protected RandomTreePool randomTreePool;
+	protected LineageArchive lineageArchive;
+	protected transient SemanticKernels kernels;
+	protected double[] trainingTargets, unseenTargets;
+	protected boolean skipDiscardedOffspring;
+	protected int maximumLazyGenerations;
+	protected transient MutationStepAdaptation mutationStepAdaptation;
+	protected SemanticDeduplication deduplication;
+	protected int maximumSize;
+	protected long replacedIndividuals;
 
 	public GSGP(Data data) {
 		super(data);	// go to constructor for GP(data)
 		this.mutationStep = Parameters.MGSGP_MS;
 		this.boundMutation = Parameters.MGSGP_APPLY_BOUND;
+		initializeSemantics();
+	}
+
+	public GSGP(Data data, long seed) {
+		super(data, seed);
+		this.mutationStep = Parameters.MGSGP_MS;
+		this.boundMutation = Parameters.MGSGP_APPLY_BOUND;
+		initializeSemantics();
+	}
+
+	public GSGP(Data data, long seed, MetricsSink metrics) {
+		super(data, seed, metrics);
+		this.mutationStep = Parameters.MGSGP_MS;
+		this.boundMutation = Parameters.MGSGP_APPLY_BOUND;
+		initializeSemantics();
+	}
+
+	public GSGP(Data data, int run, long seed, MetricsSink metrics) {
+		super(data, run, seed, metrics);
+		this.mutationStep = Parameters.MGSGP_MS;
+		this.boundMutation = Parameters.MGSGP_APPLY_BOUND;
+		initializeSemantics();
+	}
+
+	// Resumes a run from a checkpoint. The store and the pool are not part of it and can be enabled again;
+	// the archive cannot, since it must start from the programs of the initial population.
+	public GSGP(Data data, File checkpointFile) throws IOException {
+		super(data, checkpointFile);	// restores the mutation step as well
+		this.boundMutation = Parameters.MGSGP_APPLY_BOUND;
+		initializeSemantics();
+	}
+
+	// the targets are what the errors of the offspring are accumulated against while they are built
+	protected void initializeSemantics() {
+		trainingTargets = SemanticStore.extractTargets(data.getTrainingData());
+		unseenTargets = SemanticStore.extractTargets(data.getUnseenData());
+		skipDiscardedOffspring = true;
+		maximumLazyGenerations = 10;
 	}
 
-	protected Individual crossover(Individual p1, Individual p2) {
+	// offspring built from semantics have no program to compile
+	protected void evaluate(Individual individual, Data data) {
 		if (Parameters.BUILD_INDIVIDUALS)
-			return crossoverIndividual(p1, p2);
+			super.evaluate(individual, data);
 		else
-			return crossoverSemantics(p1, p2);
+			individual.evaluate(data);	// counted when its semantics were built
+	}
 
+	// semantics-only individuals fill in the rows of the batch from their parents
+	protected void evaluateOnBatch(Individual individual) {
+		if (Parameters.BUILD_INDIVIDUALS) {
+			super.evaluateOnBatch(individual);
+			return;
+		}
+		LazySemanticIndividual lazyIndividual = (LazySemanticIndividual) individual;
+		double sum = lazyIndividual.ensureTrainingRows(batchRows, trainingTargets);
+		lazyIndividual.setErrors(Math.sqrt(sum / batchRows.length), Double.NaN);
+	}
+
+	// semantics-only immigrants arrive with their outputs, so only their errors are computed
+	protected Individual adoptImmigrant(Individual immigrant) {
+		if (Parameters.BUILD_INDIVIDUALS)
+			return super.adoptImmigrant(immigrant);
+		immigrant.evaluate(data);
+		return batchRows != null ? LazySemanticIndividual.wrap(immigrant) : immigrant;
 	}
 
-	protected Individual crossoverIndividual(Individual p1, Individual p2) {
+	public void setMigration(Migration migration) {
+		if (migration != null && lineageArchive != null)
+			throw new IllegalStateException("Immigrants have no lineage, so the archive cannot be used with migration");
+		super.setMigration(migration);
+	}
+
+	protected void evaluateFully(Individual individual) {
+		if (Parameters.BUILD_INDIVIDUALS) {
+			super.evaluateFully(individual);
+			return;
+		}
+		LazySemanticIndividual lazyIndividual = (LazySemanticIndividual) individual;
+		lazyIndividual.materialize();
+		lazyIndividual.setErrors(
+				SemanticStore.calculateRMSE(lazyIndividual.getTrainingOutputs(), 0, trainingTargets),
+				SemanticStore.calculateRMSE(lazyIndividual.getUnseenOutputs(), 0, unseenTargets));
+	}
+
+	protected Individual crossover(Individual p1, Individual p2, RandomGenerator random) {
+		if (Parameters.BUILD_INDIVIDUALS)
+			return crossoverIndividual(p1, p2, random);
+		else
+			return crossoverSemantics(p1, p2, random);
+
+	}
+
+	protected Individual crossoverIndividual(Individual p1, Individual p2, RandomGenerator random) {
 
 		Individual offspring = new Individual();
 
@@ -41,7 +141,7 @@ public class GSGP extends GP {
 		for (int i = 0; i < p1.getSize(); i++)
 			offspring.addProgramElement(p1.getProgramElementAtIndex(i));
 
-		Individual randomTree = initializer.grow(Parameters.IN_DEPTH_LIM);
+		Individual randomTree = growRandomTree(random);
 
 		offspring.addProgramElement(new LogisticFunction());
 		for (int i = 0; i < randomTree.getSize(); i++)
@@ -62,49 +162,94 @@ public class GSGP extends GP {
 		return offspring;
 	}
 
-	protected Individual crossoverSemantics(Individual p1, Individual p2) {
+	protected Individual crossoverSemantics(Individual p1, Individual p2, RandomGenerator random) {
+
+		SemanticIndividual offspring;
+
+		// draw a random tree from the pool, or create and evaluate a new one
+		RandomTree randomTree = getRandomTree(random);
+
+		// size and depth are known before the semantics, so offspring beyond the depth limit are not built
+		int size = calculateCrossoverOffspringSize(p1, p2, randomTree.getTree());
+		int depth = calculateCrossoverOffspringDepth(p1, p2, randomTree.getTree());
+		if (isDiscarded(depth))
+			return createDiscardedOffspring(size, depth);
+		countSemanticEvaluation(randomTree.hasLogisticSemantics() ? 4 : 5);
+
+		if (batchRows != null) {
+			// only the rows of the batch are computed; the others are filled in when needed
+			LazySemanticIndividual lazyOffspring = LazySemanticIndividual.crossover((LazySemanticIndividual) p1,
+					(LazySemanticIndividual) p2, randomTree);
+			double sum = lazyOffspring.ensureTrainingRows(batchRows, trainingTargets);
+			lazyOffspring.setErrors(Math.sqrt(sum / batchRows.length), Double.NaN);
+			offspring = lazyOffspring;
+		} else if (semanticStore != null) {
+			// write the offspring semantics directly into its slot of the store
+			StoredIndividual storedOffspring = semanticStore.allocate();
+			buildCrossoverOffspringSemantics(p1, p2, randomTree, storedOffspring, storedOffspring.getTrainingBuffer(),
+					storedOffspring.getTrainingOffset(), storedOffspring.getUnseenBuffer(),
+					storedOffspring.getUnseenOffset());
+			offspring = storedOffspring;
+		} else {
+			offspring = new SemanticIndividual();
+			double[] offspringTrainingSemantics = new double[trainingTargets.length];
+			double[] offspringUnseenSemantics = new double[unseenTargets.length];
+			buildCrossoverOffspringSemantics(p1, p2, randomTree, offspring, offspringTrainingSemantics, 0,
+					offspringUnseenSemantics, 0);
+			offspring.setTrainingOutputs(offspringTrainingSemantics);
+			offspring.setUnseenOutputs(offspringUnseenSemantics);
+		}
 
-		Individual offspring = new Individual();
+		if (lineageArchive != null)
+			lineageArchive.recordCrossover(offspring, p1, p2, randomTree);
 
-		// create a random tree and evaluate it
-		Individual randomTree = initializer.grow(Parameters.IN_DEPTH_LIM);
-		randomTree.evaluate(data);
-
-		// build training data semantics
-		double[] parent1TrainingSemantics = p1.getTrainingOutputs();
-		double[] parent2TrainingSemantics = p2.getTrainingOutputs();
-		double[] randomTreeTrainingSemantics = randomTree.getTrainingOutputs();
-		double[] offspringTrainingSemantics = buildCrossoverOffspringSemantics(parent1TrainingSemantics,
-				parent2TrainingSemantics, randomTreeTrainingSemantics);
-		offspring.setTrainingOutputs(offspringTrainingSemantics);
-
-		// build unseen data semantics
-		double[] parent1UnseenSemantics = p1.getUnseenOutputs();
-		double[] parent2UnseenSemantics = p2.getUnseenOutputs();
-		double[] randomTreeUnseenSemantics = randomTree.getUnseenOutputs();
-		double[] offspringUnseenSemantics = buildCrossoverOffspringSemantics(parent1UnseenSemantics,
-				parent2UnseenSemantics, randomTreeUnseenSemantics);
-		offspring.setUnseenOutputs(offspringUnseenSemantics);
-
-		// calculate size and depth
 		offspring.setSizeOverride(true);
-		offspring.setComputedSize(calculateCrossoverOffspringSize(p1, p2, randomTree));
-		offspring.setDepth(calculateCrossoverOffspringDepth(p1, p2, randomTree));
+		offspring.setComputedSize(size);
+		offspring.setDepth(depth);
 
 		return offspring;
 	}
 
+	// builds the semantics of the offspring and sets its errors, which are accumulated in the same pass
+	protected void buildCrossoverOffspringSemantics(Individual p1, Individual p2, RandomTree randomTree,
+			SemanticIndividual offspring, double[] offspringTrainingSemantics, int trainingOffset,
+			double[] offspringUnseenSemantics, int unseenOffset) {
+		int trainingLength = trainingTargets.length, unseenLength = unseenTargets.length;
+		double trainingSum, unseenSum;
+		if (randomTree.hasLogisticSemantics()) {
+			// pooled random trees already hold their logistic-transformed semantics
+			trainingSum = getKernels().blendSemantics(getTrainingSemantics(p1), getTrainingOffset(p1),
+					getTrainingSemantics(p2), getTrainingOffset(p2), randomTree.getLogisticTrainingSemantics(), 0,
+					offspringTrainingSemantics, trainingOffset, trainingTargets, 0, trainingLength);
+			unseenSum = getKernels().blendSemantics(getUnseenSemantics(p1), getUnseenOffset(p1),
+					getUnseenSemantics(p2), getUnseenOffset(p2), randomTree.getLogisticUnseenSemantics(), 0,
+					offspringUnseenSemantics, unseenOffset, unseenTargets, 0, unseenLength);
+		} else {
+			trainingSum = getKernels().buildCrossoverSemantics(getTrainingSemantics(p1), getTrainingOffset(p1),
+					getTrainingSemantics(p2), getTrainingOffset(p2), randomTree.getTrainingSemantics(), 0,
+					offspringTrainingSemantics, trainingOffset, trainingTargets, 0, trainingLength);
+			unseenSum = getKernels().buildCrossoverSemantics(getUnseenSemantics(p1), getUnseenOffset(p1),
+					getUnseenSemantics(p2), getUnseenOffset(p2), randomTree.getUnseenSemantics(), 0,
+					offspringUnseenSemantics, unseenOffset, unseenTargets, 0, unseenLength);
+		}
+		offspring.setErrors(Math.sqrt(trainingSum / trainingLength), Math.sqrt(unseenSum / unseenLength));
+	}
+
 	protected double[] buildCrossoverOffspringSemantics(double[] parent1Semantics, double[] parent2Semantics,
 			double[] randomTreeSemantics) {
 		double[] offspringSemantics = new double[parent1Semantics.length];
-		for (int i = 0; i < offspringSemantics.length; i++) {
-			double randomTreeValue = Utils.logisticFunction(randomTreeSemantics[i]);
-			offspringSemantics[i] = (parent1Semantics[i] * randomTreeValue)
-					+ ((1.0 - randomTreeValue) * parent2Semantics[i]);
-		}
+		buildCrossoverOffspringSemantics(parent1Semantics, 0, parent2Semantics, 0, randomTreeSemantics,
+				offspringSemantics, 0, offspringSemantics.length);
 		return offspringSemantics;
 	}
 
+	protected void buildCrossoverOffspringSemantics(double[] parent1Semantics, int parent1Offset,
+			double[] parent2Semantics, int parent2Offset, double[] randomTreeSemantics, double[] offspringSemantics,
+			int offspringOffset, int length) {
+		getKernels().buildCrossoverSemantics(parent1Semantics, parent1Offset, parent2Semantics, parent2Offset,
+				randomTreeSemantics, 0, offspringSemantics, offspringOffset, length);
+	}
+
 	protected int calculateCrossoverOffspringSize(Individual p1, Individual p2, Individual randomTree) {
 		return p1.getSize() + p2.getSize() + randomTree.getSize() * 2 + 5;
 	}
@@ -115,15 +260,15 @@ public class GSGP extends GP {
 		return Math.max(largestParentDepth + 2, randomTree.getDepth() + 3 + 1);
 	}
 
-	protected Individual mutation(Individual p) {
+	protected Individual mutation(Individual p, RandomGenerator random) {
 		if (Parameters.BUILD_INDIVIDUALS)
-			return buildMutationIndividual(p);
+			return buildMutationIndividual(p, random);
 		else
-			return buildMutationSemantics(p);
+			return buildMutationSemantics(p, random);
 
 	}
 
-	protected Individual buildMutationIndividual(Individual p) {	// combine original individual with 2 random trees 
+	protected Individual buildMutationIndividual(Individual p, RandomGenerator random) {	// combine original individual with 2 random trees 
 																	// if MGSGP_APPLY_BOUND is set to TRUE then add logistic functions as well
 		Individual offspring = new Individual();
 		offspring.addProgramElement(new Addition());	// first node is always Addition
@@ -137,8 +282,8 @@ public class GSGP extends GP {
 		offspring.addProgramElement(new Subtraction());
 
 		// create 2 random trees
-		Individual randomTree1 = initializer.grow(Parameters.IN_DEPTH_LIM);
-		Individual randomTree2 = initializer.grow(Parameters.IN_DEPTH_LIM);
+		Individual randomTree1 = growRandomTree(random);
+		Individual randomTree2 = growRandomTree(random);
 
 		if (boundMutation)
 			offspring.addProgramElement(new LogisticFunction());	// add logistic function to offspring
@@ -157,55 +302,97 @@ public class GSGP extends GP {
 		return offspring;
 	}
 
-	protected Individual buildMutationSemantics(Individual p) {
+	protected Individual buildMutationSemantics(Individual p, RandomGenerator random) {
+
+		SemanticIndividual offspring;
+
+		// draw 2 random trees from the pool, or create and evaluate 2 new ones
+		RandomTree randomTree1 = getRandomTree(random);
+		RandomTree randomTree2 = getRandomTree(random);
+
+		int size = calculateMutationOffspringSize(p, randomTree1.getTree(), randomTree2.getTree());
+		int depth = calculateMutationOffspringDepth(p, randomTree1.getTree(), randomTree2.getTree());
+		if (isDiscarded(depth))
+			return createDiscardedOffspring(size, depth);
+		countSemanticEvaluation(
+				boundMutation && !(randomTree1.hasLogisticSemantics() && randomTree2.hasLogisticSemantics()) ? 5 : 3);
+
+		if (batchRows != null) {
+			LazySemanticIndividual lazyOffspring = LazySemanticIndividual.mutation((LazySemanticIndividual) p,
+					randomTree1, randomTree2, mutationStep, boundMutation);
+			double sum = lazyOffspring.ensureTrainingRows(batchRows, trainingTargets);
+			lazyOffspring.setErrors(Math.sqrt(sum / batchRows.length), Double.NaN);
+			offspring = lazyOffspring;
+		} else if (semanticStore != null) {
+			// write the offspring semantics directly into its slot of the store
+			StoredIndividual storedOffspring = semanticStore.allocate();
+			buildMutationOffspringSemantics(p, randomTree1, randomTree2, storedOffspring,
+					storedOffspring.getTrainingBuffer(), storedOffspring.getTrainingOffset(),
+					storedOffspring.getUnseenBuffer(), storedOffspring.getUnseenOffset());
+			offspring = storedOffspring;
+		} else {
+			offspring = new SemanticIndividual();
+			double[] offspringTrainingSemantics = new double[trainingTargets.length];
+			double[] offspringUnseenSemantics = new double[unseenTargets.length];
+			buildMutationOffspringSemantics(p, randomTree1, randomTree2, offspring, offspringTrainingSemantics, 0,
+					offspringUnseenSemantics, 0);
+			offspring.setTrainingOutputs(offspringTrainingSemantics);
+			offspring.setUnseenOutputs(offspringUnseenSemantics);
+		}
 
-		Individual offspring = new Individual();
+		if (lineageArchive != null)
+			lineageArchive.recordMutation(offspring, p, randomTree1, randomTree2, mutationStep, boundMutation);
 
-		// create 2 random trees and evaluate them
-		Individual randomTree1 = initializer.grow(Parameters.IN_DEPTH_LIM);
-		Individual randomTree2 = initializer.grow(Parameters.IN_DEPTH_LIM);
-		randomTree1.evaluate(data);
-		randomTree2.evaluate(data);
-
-		// build training data semantics
-		double[] parentTrainingSemantics = p.getTrainingOutputs();
-		double[] randomTree1TrainingSemantics = randomTree1.getTrainingOutputs();
-		double[] randomTree2TrainingSemantics = randomTree2.getTrainingOutputs();
-		double[] offspringTrainingSemantics = buildMutationOffspringSemantics(parentTrainingSemantics,
-				randomTree1TrainingSemantics, randomTree2TrainingSemantics);
-		offspring.setTrainingOutputs(offspringTrainingSemantics);
-
-		// build unseen data semantics
-		double[] parentUnseenSemantics = p.getUnseenOutputs();
-		double[] randomTree1UnseenSemantics = randomTree1.getUnseenOutputs();
-		double[] randomTree2UnseenSemantics = randomTree2.getUnseenOutputs();
-		double[] offspringUnseenSemantics = buildMutationOffspringSemantics(parentUnseenSemantics,
-				randomTree1UnseenSemantics, randomTree2UnseenSemantics);
-		offspring.setUnseenOutputs(offspringUnseenSemantics);
-
-		// calculate size and depth
 		offspring.setSizeOverride(true);
-		offspring.setComputedSize(calculateMutationOffspringSize(p, randomTree1, randomTree2));
-		offspring.setDepth(calculateMutationOffspringDepth(p, randomTree1, randomTree2));
+		offspring.setComputedSize(size);
+		offspring.setDepth(depth);
 
 		return offspring;
 	}
 
+	// builds the semantics of the offspring and sets its errors, which are accumulated in the same pass
+	protected void buildMutationOffspringSemantics(Individual p, RandomTree randomTree1, RandomTree randomTree2,
+			SemanticIndividual offspring, double[] offspringTrainingSemantics, int trainingOffset,
+			double[] offspringUnseenSemantics, int unseenOffset) {
+		int trainingLength = trainingTargets.length, unseenLength = unseenTargets.length;
+		double trainingSum, unseenSum;
+		if (boundMutation && randomTree1.hasLogisticSemantics() && randomTree2.hasLogisticSemantics()) {
+			// pooled random trees already hold their logistic-transformed semantics
+			trainingSum = getKernels().buildMutationSemantics(getTrainingSemantics(p), getTrainingOffset(p),
+					randomTree1.getLogisticTrainingSemantics(), 0, randomTree2.getLogisticTrainingSemantics(), 0,
+					offspringTrainingSemantics, trainingOffset, trainingTargets, 0, trainingLength, mutationStep,
+					false);
+			unseenSum = getKernels().buildMutationSemantics(getUnseenSemantics(p), getUnseenOffset(p),
+					randomTree1.getLogisticUnseenSemantics(), 0, randomTree2.getLogisticUnseenSemantics(), 0,
+					offspringUnseenSemantics, unseenOffset, unseenTargets, 0, unseenLength, mutationStep, false);
+		} else {
+			trainingSum = getKernels().buildMutationSemantics(getTrainingSemantics(p), getTrainingOffset(p),
+					randomTree1.getTrainingSemantics(), 0, randomTree2.getTrainingSemantics(), 0,
+					offspringTrainingSemantics, trainingOffset, trainingTargets, 0, trainingLength, mutationStep,
+					boundMutation);
+			unseenSum = getKernels().buildMutationSemantics(getUnseenSemantics(p), getUnseenOffset(p),
+					randomTree1.getUnseenSemantics(), 0, randomTree2.getUnseenSemantics(), 0,
+					offspringUnseenSemantics, unseenOffset, unseenTargets, 0, unseenLength, mutationStep,
+					boundMutation);
+		}
+		offspring.setErrors(Math.sqrt(trainingSum / trainingLength), Math.sqrt(unseenSum / unseenLength));
+	}
+
 	protected double[] buildMutationOffspringSemantics(double[] parentSemantics, double[] randomTree1Semantics,
 			double[] randomTree2Semantics) {
 		double[] offspringSemantics = new double[parentSemantics.length];
-		for (int i = 0; i < offspringSemantics.length; i++) {
-			double value1 = randomTree1Semantics[i];
-			double value2 = randomTree2Semantics[i];
-			if (boundMutation) {
-				value1 = Utils.logisticFunction(value1);
-				value2 = Utils.logisticFunction(value2);
-			}
-			offspringSemantics[i] = parentSemantics[i] + (mutationStep * (value1 - value2));
-		}
+		buildMutationOffspringSemantics(parentSemantics, 0, randomTree1Semantics, randomTree2Semantics,
+				offspringSemantics, 0, offspringSemantics.length);
 		return offspringSemantics;
 	}
 
+	protected void buildMutationOffspringSemantics(double[] parentSemantics, int parentOffset,
+			double[] randomTree1Semantics, double[] randomTree2Semantics, double[] offspringSemantics,
+			int offspringOffset, int length) {
+		getKernels().buildMutationSemantics(parentSemantics, parentOffset, randomTree1Semantics, 0,
+				randomTree2Semantics, 0, offspringSemantics, offspringOffset, length, mutationStep, boundMutation);
+	}
+
 	protected int calculateMutationOffspringSize(Individual parent, Individual randomTree1, Individual randomTree2) {
 		return parent.getSize() + randomTree1.getSize() + randomTree2.getSize() + 4;
 	}
@@ -215,6 +402,170 @@ public class GSGP extends GP {
 		return Math.max(largestRandomTreeDepth + 3, parent.getDepth() + 1);
 	}
 
+	// breed replaces offspring beyond the depth limit by their parent
+	protected boolean isDiscarded(int depth) {
+		return skipDiscardedOffspring && Parameters.VAR_APPLY_DEPTH_LIM && depth > Parameters.VAR_DEPTH_LIM;
+	}
+
+	// an offspring without semantics, which only carries the size and depth that get it discarded
+	protected Individual createDiscardedOffspring(int size, int depth) {
+		Individual offspring = new Individual();
+		offspring.setSizeOverride(true);
+		offspring.setComputedSize(size);
+		offspring.setDepth(depth);
+		return offspring;
+	}
+
+	// elitism may keep a parent, which has to be carried over into the buffers of the new generation
+	protected Population replacement(Population offspring) {
+		Population nextGeneration = super.replacement(offspring);
+		if (mutationStepAdaptation != null)
+			mutationStep = mutationStepAdaptation.adapt(mutationStep);
+		if (deduplication != null || maximumSize > 0)
+			nextGeneration = managePopulation(nextGeneration);
+		if (semanticStore != null)
+			semanticStore.nextGeneration(nextGeneration);
+		if (lineageArchive != null)
+			lineageArchive.nextGeneration(nextGeneration);
+		if (randomTreePool != null)
+			randomTreePool.nextGeneration(r, threads > 1 ? getPool() : null, threads);
+		if (batchRows != null && !Parameters.BUILD_INDIVIDUALS) {
+			// bounds the chains of parents that lazy individuals keep alive
+			for (int i = 0; i < nextGeneration.getSize(); i++) {
+				LazySemanticIndividual individual = (LazySemanticIndividual) nextGeneration.getIndividual(i);
+				if (individual.getAge() >= maximumLazyGenerations)
+					individual.materialize();
+			}
+		}
+		return nextGeneration;
+	}
+
+	// Replaces semantic duplicates and individuals beyond the maximum size by fresh random trees, whose
+	// semantics are already known (from the pool, or from evaluating the tree once). The elite stays.
+	protected Population managePopulation(Population population) {
+		int size = population.getSize();
+		boolean[] replace = new boolean[size];
+		if (deduplication != null) {
+			double[][] vectors = new double[size][];
+			int[] offsets = new int[size];
+			// lazy individuals are compared on the rows of the batch, which they all know
+			boolean lazy = batchRows != null && !Parameters.BUILD_INDIVIDUALS;
+			for (int i = 0; i < size; i++) {
+				Individual individual = population.getIndividual(i);
+				if (lazy)
+					vectors[i] = ((LazySemanticIndividual) individual).getTrainingRows(batchRows);
+				else {
+					vectors[i] = getTrainingSemantics(individual);
+					offsets[i] = getTrainingOffset(individual);
+				}
+			}
+			int numberOfRows = lazy ? batchRows.length : trainingTargets.length;
+			replace = deduplication.findDuplicates(vectors, offsets, null, numberOfRows, rankByError(population), r);
+		}
+		Population managed = new Population();
+		managed.addIndividual(population.getIndividual(0));
+		for (int i = 1; i < size; i++) {
+			Individual individual = population.getIndividual(i);
+			if (replace[i] || (maximumSize > 0 && individual.getSize() > maximumSize)) {
+				individual = createFreshIndividual(r);
+				replacedIndividuals++;
+			}
+			managed.addIndividual(individual);
+		}
+		return managed;
+	}
+
+	// the elite first, then from best to worst training error
+	protected static int[] rankByError(final Population population) {
+		Integer[] order = new Integer[population.getSize() - 1];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i + 1;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Double.compare(population.getIndividual(a).getTrainingError(),
+						population.getIndividual(b).getTrainingError());
+			}
+		});
+		int[] ranking = new int[population.getSize()];
+		for (int i = 0; i < order.length; i++)
+			ranking[i + 1] = order[i];
+		return ranking;
+	}
+
+	protected Individual createFreshIndividual(RandomGenerator random) {
+		RandomTree randomTree = getRandomTree(random);
+		Individual tree = randomTree.getTree();
+		if (Parameters.BUILD_INDIVIDUALS) {
+			// a copy of the program, since pooled trees are shared
+			Individual fresh = new Individual();
+			for (int i = 0; i < tree.getSize(); i++)
+				fresh.addProgramElement(tree.getProgramElementAtIndex(i));
+			fresh.setDepth(tree.getDepth());
+			fresh.setTrainingOutputs(randomTree.getTrainingSemantics());
+			fresh.setUnseenOutputs(randomTree.getUnseenSemantics());
+			fresh.setSizeOverride(true);
+			fresh.setComputedSize(tree.getSize());
+			fresh.evaluate(data);
+			return fresh;
+		}
+		SemanticIndividual fresh = new SemanticIndividual();
+		fresh.setTrainingOutputs(randomTree.getTrainingSemantics());
+		fresh.setUnseenOutputs(randomTree.getUnseenSemantics());
+		fresh.setSizeOverride(true);
+		fresh.setComputedSize(tree.getSize());
+		fresh.setDepth(tree.getDepth());
+		fresh.setErrors(SemanticStore.calculateRMSE(randomTree.getTrainingSemantics(), 0, trainingTargets),
+				SemanticStore.calculateRMSE(randomTree.getUnseenSemantics(), 0, unseenTargets));
+		Individual individual = batchRows != null ? LazySemanticIndividual.wrap(fresh) : fresh;
+		if (lineageArchive != null)
+			lineageArchive.recordTree(individual, randomTree);
+		return individual;
+	}
+
+	protected RandomTree getRandomTree(RandomGenerator random) {
+		if (randomTreePool != null)
+			return randomTreePool.draw(random);
+		long mark = beginStage(Profiler.RANDOM_TREES);
+		RandomTree randomTree = new RandomTree(initializer.grow(Parameters.IN_DEPTH_LIM, random), data);
+		endStage(Profiler.RANDOM_TREES, mark);
+		countEvaluation(randomTree.getSize(), data);
+		return randomTree;
+	}
+
+	// For the profiler: a semantics-only offspring costs the operators that combine the semantics of its
+	// parents and random trees on every row (of the batch), including the logistic functions of random
+	// trees that do not come with them.
+	protected void countSemanticEvaluation(int operators) {
+		if (profiler != null)
+			profiler.countEvaluation(operators,
+					batchRows != null ? batchRows.length : trainingTargets.length + unseenTargets.length);
+	}
+
+	// individuals of the initial population keep their own output arrays
+	protected static double[] getTrainingSemantics(Individual individual) {
+		if (individual instanceof StoredIndividual)
+			return ((StoredIndividual) individual).getTrainingBuffer();
+		return individual.getTrainingOutputs();
+	}
+
+	protected static int getTrainingOffset(Individual individual) {
+		if (individual instanceof StoredIndividual)
+			return ((StoredIndividual) individual).getTrainingOffset();
+		return 0;
+	}
+
+	protected static double[] getUnseenSemantics(Individual individual) {
+		if (individual instanceof StoredIndividual)
+			return ((StoredIndividual) individual).getUnseenBuffer();
+		return individual.getUnseenOutputs();
+	}
+
+	protected static int getUnseenOffset(Individual individual) {
+		if (individual instanceof StoredIndividual)
+			return ((StoredIndividual) individual).getUnseenOffset();
+		return 0;
+	}
+
 	public double getMutationStep() {
 		return mutationStep;
 	}
@@ -223,7 +574,189 @@ public class GSGP extends GP {
 		this.mutationStep = mutationStep;
 	}
 
+	public MutationStepAdaptation getMutationStepAdaptation() {
+		return mutationStepAdaptation;
+	}
+
+	// Adapts the mutation step after every generation from the success rate of its mutations; null keeps it
+	// fixed. Every offspring records the step it was built with, so the lineage archive stays exact.
+	public void setMutationStepAdaptation(MutationStepAdaptation mutationStepAdaptation) {
+		this.mutationStepAdaptation = mutationStepAdaptation;
+	}
+
+	protected void mutationEvaluated(Individual parent, Individual offspring) {
+		if (mutationStepAdaptation != null)
+			mutationStepAdaptation.record(parent.getTrainingError(), offspring.getTrainingError());
+	}
+
 	public void setBoundMutation(boolean boundMutation) {
 		this.boundMutation = boundMutation;
 	}
+
+	public SemanticKernels getKernels() {
+		if (kernels == null)
+			kernels = SemanticKernels.getDefault();
+		return kernels;
+	}
+
+	// After every replacement, individuals within tolerance of a better one on every training row (tolerance
+	// > 0) and individuals larger than maximumSize (> 0) are replaced by fresh random trees
+	public void setPopulationManagement(double tolerance, int maximumSize) {
+		if (tolerance > 0 && miniBatch != null && Parameters.BUILD_INDIVIDUALS)
+			throw new IllegalStateException("Deduplication needs the outputs of all rows with mini-batches");
+		deduplication = tolerance > 0 ? new SemanticDeduplication(tolerance) : null;
+		this.maximumSize = maximumSize;
+	}
+
+	public SemanticDeduplication getDeduplication() {
+		return deduplication;
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	// individuals replaced by fresh ones so far
+	public long getReplacedIndividuals() {
+		return replacedIndividuals;
+	}
+
+	// lexicase selection reads the outputs of every training row, which semantics-only individuals
+	// evaluated on mini-batches do not have
+	public void setSelection(Selection selection) {
+		if (selection instanceof LexicaseSelection && miniBatch != null && !Parameters.BUILD_INDIVIDUALS)
+			throw new IllegalStateException("Lexicase selection needs all outputs, which mini-batches leave out");
+		super.setSelection(selection);
+	}
+
+	// Semantics-only offspring are built on the rows of the batch only (see LazySemanticIndividual), so the
+	// individuals of the population are turned into lazy ones, whose semantics are all known.
+	public void setMiniBatch(MiniBatch miniBatch) {
+		if (miniBatch != null && deduplication != null && Parameters.BUILD_INDIVIDUALS)
+			throw new IllegalStateException("Deduplication needs the outputs of all rows with mini-batches");
+		if (miniBatch != null && !Parameters.BUILD_INDIVIDUALS) {
+			if (semanticStore != null)
+				throw new IllegalStateException("Mini-batches cannot be used with the semantic store");
+			if (selection instanceof LexicaseSelection)
+				throw new IllegalStateException("Lexicase selection needs all outputs, which mini-batches leave out");
+			Population wrapped = new Population();
+			for (int i = 0; i < population.getSize(); i++) {
+				Individual individual = population.getIndividual(i);
+				Individual lazyIndividual = individual instanceof LazySemanticIndividual ? individual
+						: LazySemanticIndividual.wrap(individual);
+				if (lineageArchive != null && lazyIndividual != individual)
+					lineageArchive.alias(individual, lazyIndividual);
+				if (individual == currentBest)
+					currentBest = lazyIndividual;
+				wrapped.addIndividual(lazyIndividual);
+			}
+			population = wrapped;
+		}
+		super.setMiniBatch(miniBatch);
+	}
+
+	// individuals evaluated on mini-batches keep the parents of their unknown rows for at most this many
+	// generations before they are fully evaluated
+	public void setMaximumLazyGenerations(int maximumLazyGenerations) {
+		this.maximumLazyGenerations = Math.max(1, maximumLazyGenerations);
+	}
+
+	public int getMaximumLazyGenerations() {
+		return maximumLazyGenerations;
+	}
+
+	// The subtree cache only applies to standard GP: GSGP offspring reuse the semantics of their parents
+	// already, and their programs contain elements that are not part of the Initializer sets. 0 is accepted,
+	// since it leaves the cache disabled.
+	public void setSubtreeCache(long maximumBytes) {
+		if (maximumBytes > 0)
+			throw new UnsupportedOperationException("GSGP does not use the subtree cache");
+	}
+
+	// by default, offspring beyond the depth limit are discarded without building their semantics; the
+	// random trees are drawn either way, so the run is the same
+	public void setSkipDiscardedOffspring(boolean skipDiscardedOffspring) {
+		this.skipDiscardedOffspring = skipDiscardedOffspring;
+	}
+
+	public boolean isSkipDiscardedOffspring() {
+		return skipDiscardedOffspring;
+	}
+
+	// defaults to the SIMD kernels when the Vector API is available, and to the scalar ones otherwise
+	public void setKernels(SemanticKernels kernels) {
+		this.kernels = kernels;
+	}
+
+	public LineageArchive getLineageArchive() {
+		return lineageArchive;
+	}
+
+	// Records the lineage of semantics-only offspring (BUILD_INDIVIDUALS set to false), from which the
+	// final model can be evaluated on new data or reconstructed. Must be enabled before the search starts.
+	public void setLineageArchive(boolean enabled) {
+		if (enabled && migration != null && !Parameters.BUILD_INDIVIDUALS)
+			throw new IllegalStateException("Immigrants have no lineage, so the archive cannot be used with migration");
+		if (enabled && lineageArchive == null) {
+			if (currentGen > 1)
+				throw new IllegalStateException("The lineage archive must be enabled before the search starts");
+			for (int i = 0; i < population.getSize(); i++)
+				if (population.getIndividual(i).getSize() == 0)
+					throw new IllegalStateException("The lineage archive needs the programs of the population");
+		}
+		if (!enabled)
+			lineageArchive = null;
+		else if (lineageArchive == null)
+			lineageArchive = new LineageArchive(population);
+	}
+
+	// outputs of the current best individual on new data, computed from the lineage archive
+	public double[] predict(double[][] rows) {
+		if (lineageArchive == null)
+			throw new IllegalStateException("Predictions for semantics-only individuals need the lineage archive");
+		return lineageArchive.evaluate(currentBest, rows);
+	}
+
+	// semantics-only individuals have no program, so their model is compiled from the lineage archive
+	public Predictor compilePredictor() {
+		if (Parameters.BUILD_INDIVIDUALS)
+			return super.compilePredictor();
+		if (lineageArchive == null)
+			throw new IllegalStateException("Semantics-only individuals can only be compiled with the lineage archive");
+		return PredictorCompiler.compile(lineageArchive, currentBest);
+	}
+
+	public RandomTreePool getRandomTreePool() {
+		return randomTreePool;
+	}
+
+	// Semantics-only offspring draw their random trees from a pool of the given size instead of growing
+	// new ones. Every refreshInterval generations (never if 0) refreshFraction of the pool is replaced.
+	public void setRandomTreePool(int size, int refreshInterval, double refreshFraction) {
+		if (size <= 0)
+			randomTreePool = null;
+		else
+			randomTreePool = new RandomTreePool(initializer, data, getKernels(), size, Parameters.IN_DEPTH_LIM,
+					refreshInterval, refreshFraction, r, profiler, threads > 1 ? getPool() : null, threads);
+	}
+
+	public void setProfiler(Profiler profiler) {
+		super.setProfiler(profiler);
+		if (randomTreePool != null)
+			randomTreePool.setProfiler(profiler);
+	}
+
+	public SemanticStore getSemanticStore() {
+		return semanticStore;
+	}
+
+	// only applies to the semantics-only path (BUILD_INDIVIDUALS set to false)
+	public void setSemanticStore(boolean enabled) {
+		if (enabled && miniBatch != null && !Parameters.BUILD_INDIVIDUALS)
+			throw new IllegalStateException("The semantic store cannot be used with mini-batches");
+		if (!enabled)
+			semanticStore = null;
+		else if (semanticStore == null)
+			semanticStore = new SemanticStore(data, population.getSize() + 1);
+	}
 }
\ No newline at end of file
@@ -1,7 +1,8 @@
 package algorithms;
 
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.IdentityHashMap;
+import java.util.random.RandomGenerator;
 
 import main.Individual;
 import main.Population;
@@ -16,14 +17,21 @@ import programElements.Subtraction;
 
 public class Initializer {
 
-	private Random r;
+	private RandomGenerator r;
 	private ArrayList<ProgramElement> functionSet, terminalSet, fullSet;
+	private ProgramElement[] elementTable;
+	private int[] arityTable;
+	private IdentityHashMap<ProgramElement, Integer> opcodes;
 
 	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
 	// Constructor: create function, terminal and full set
 	//
 	public Initializer(int dimensionality) {
-		r = new Random();
+		this(dimensionality, RandomGenerators.create(RandomGenerators.createSeed()));
+	}
+
+	public Initializer(int dimensionality, RandomGenerator r) {
+		this.r = r;
 
 		// create function set
 		functionSet = new ArrayList<ProgramElement>();
@@ -48,6 +56,16 @@ public class Initializer {
 			fullSet.add(programElement);
 		for (ProgramElement programElement : terminalSet)
 			fullSet.add(programElement);
+
+		// tables shared by every LinearProgram: the opcode of an element is its index in the full set
+		elementTable = fullSet.toArray(new ProgramElement[fullSet.size()]);
+		arityTable = new int[elementTable.length];
+		opcodes = new IdentityHashMap<ProgramElement, Integer>();
+		for (int i = 0; i < elementTable.length; i++) {
+			if (elementTable[i] instanceof Operator)
+				arityTable[i] = ((Operator) elementTable[i]).getArity();
+			opcodes.put(elementTable[i], i);
+		}
 	}
 	// --------------------------------------------------------------------
 
@@ -79,47 +97,75 @@ public class Initializer {
 	}
 
 	public Individual full(int maximumTreeDepth) {
-		Individual individual = new Individual();
-		fullInner(individual, 0, maximumTreeDepth);
+		return full(maximumTreeDepth, r);
+	}
+
+	public Individual full(int maximumTreeDepth, RandomGenerator random) {
+		Individual individual = new LinearIndividual();
+		fullInner(individual, 0, maximumTreeDepth, random);
 		individual.setDepth(maximumTreeDepth);
 		return individual;
 	}
 
-	private void fullInner(Individual individual, int currentDepth, int maximumTreeDepth) {
+	private void fullInner(Individual individual, int currentDepth, int maximumTreeDepth, RandomGenerator random) {
 		if (currentDepth == maximumTreeDepth) {
-			ProgramElement randomTerminal = terminalSet.get(r.nextInt(terminalSet.size()));
+			ProgramElement randomTerminal = terminalSet.get(random.nextInt(terminalSet.size()));
 			individual.addProgramElement(randomTerminal);
 		} else {
-			Operator randomOperator = (Operator) functionSet.get(r.nextInt(functionSet.size()));
+			Operator randomOperator = (Operator) functionSet.get(random.nextInt(functionSet.size()));
 			individual.addProgramElement(randomOperator);
 			for (int i = 0; i < randomOperator.getArity(); i++) {
-				fullInner(individual, currentDepth + 1, maximumTreeDepth);
+				fullInner(individual, currentDepth + 1, maximumTreeDepth, random);
 			}
 		}
 	}
 
 	public Individual grow(int maximumTreeDepth) {
-		Individual individual = new Individual();
-		growInner(individual, 0, maximumTreeDepth);
+		return grow(maximumTreeDepth, r);
+	}
+
+	// the generator is passed explicitly so that concurrent callers can each use their own stream
+	public Individual grow(int maximumTreeDepth, RandomGenerator random) {
+		Individual individual = new LinearIndividual();
+		growInner(individual, 0, maximumTreeDepth, random);
 		individual.calculateDepth();
 		return individual;
 	}
 
-	private void growInner(Individual individual, int currentDepth, int maximumTreeDepth) {
+	private void growInner(Individual individual, int currentDepth, int maximumTreeDepth, RandomGenerator random) {
 		if (currentDepth == maximumTreeDepth) {
-			ProgramElement randomTerminal = terminalSet.get(r.nextInt(terminalSet.size()));
+			ProgramElement randomTerminal = terminalSet.get(random.nextInt(terminalSet.size()));
 			individual.addProgramElement(randomTerminal);
 		} else {
-			if (r.nextBoolean()) {
-				Operator randomOperator = (Operator) functionSet.get(r.nextInt(functionSet.size()));
+			if (random.nextBoolean()) {
+				Operator randomOperator = (Operator) functionSet.get(random.nextInt(functionSet.size()));
 				individual.addProgramElement(randomOperator);
 				for (int i = 0; i < randomOperator.getArity(); i++) {
-					growInner(individual, currentDepth + 1, maximumTreeDepth);
+					growInner(individual, currentDepth + 1, maximumTreeDepth, random);
 				}
 			} else {
-				ProgramElement randomTerminal = terminalSet.get(r.nextInt(terminalSet.size()));
+				ProgramElement randomTerminal = terminalSet.get(random.nextInt(terminalSet.size()));
 				individual.addProgramElement(randomTerminal);
 			}
 		}
 	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Element tables, shared by all programs and read in place on the hot paths of the package; they are not
+	// copied, so callers must not modify them
+	//
+	ProgramElement[] getElementTable() {
+		return elementTable;
+	}
+
+	int[] getArityTable() {
+		return arityTable;
+	}
+
+	// -1 for elements that are not part of the function or terminal set
+	public int getOpcode(ProgramElement programElement) {
+		Integer opcode = opcodes.get(programElement);
+		return opcode == null ? -1 : opcode;
+	}
+	// --------------------------------------------------------------------
 }
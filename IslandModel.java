@@ -0,0 +1,99 @@
+package algorithms;
+
+import java.io.File;
+import java.util.random.RandomGenerator;
+
+import main.Individual;
+import utils.Data;
+
+// Runs the islands of an island model as threads of this JVM, connected through LocalMigration. Every
+// island is a full GP/GSGP run with its own seed, drawn from the seed of the model, and its own metrics,
+// recorded with the island as the run number.
+// Migration is synchronous, so every island needs a thread of its own; for islands in separate processes
+// use SocketMigration instead.
+public class IslandModel {
+
+	protected MigrationTopology topology;
+	protected int interval, size;
+	protected long seed;
+	protected File metricsDirectory;
+	protected GP[] islands;
+
+	public IslandModel(MigrationTopology topology, int interval, int size, long seed) {
+		this.topology = topology;
+		this.interval = interval;
+		this.size = size;
+		this.seed = seed;
+	}
+
+	// each island writes its metrics to <directory>/island-<island>.csv; without a directory they are dropped
+	public void setMetricsDirectory(File metricsDirectory) {
+		this.metricsDirectory = metricsDirectory;
+	}
+
+	// evolves all islands for the given number of generations and returns the best individual found
+	public Individual run(final Data data, final int generations, final ExperimentScheduler.RunFactory factory) {
+		final int numberOfIslands = topology.getNumberOfIslands();
+		final LocalMigration[] migrations = LocalMigration.create(topology, interval, size);
+		final MetricsSink[] sinks = new MetricsSink[numberOfIslands];
+		final Throwable[] failure = new Throwable[1];
+		final Thread[] threads = new Thread[numberOfIslands];
+		islands = new GP[numberOfIslands];
+		RandomGenerator r = RandomGenerators.create(seed);
+
+		for (int i = 0; i < numberOfIslands; i++) {
+			final int island = i;
+			final long islandSeed = r.nextLong();
+			sinks[i] = ExperimentScheduler.createMetricsSink(metricsDirectory, "island-" + i);
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					GP gp = null;
+					try {
+						gp = factory.create(data, island, islandSeed, sinks[island]);
+						gp.setLabel("island-" + island);
+						gp.setMigration(migrations[island]);
+						islands[island] = gp;
+						gp.search(generations);
+						migrations[island].close();
+					} catch (Throwable e) {
+						// the other islands would wait for this one's emigrants forever
+						synchronized (failure) {
+							if (failure[0] == null)
+								failure[0] = e;
+						}
+						for (Thread thread : threads)
+							if (thread != Thread.currentThread())
+								thread.interrupt();
+					} finally {
+						if (gp != null)
+							gp.shutdown();
+					}
+				}
+			}, "island-" + i);
+		}
+		for (Thread thread : threads)
+			thread.start();
+		try {
+			for (Thread thread : threads)
+				thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the islands", e);
+		} finally {
+			for (MetricsSink sink : sinks)
+				sink.close();
+		}
+		if (failure[0] != null)
+			throw new IllegalStateException("An island failed", failure[0]);
+
+		Individual best = null;
+		for (GP island : islands)
+			if (best == null || island.getCurrentBest().getTrainingError() < best.getTrainingError())
+				best = island.getCurrentBest();
+		return best;
+	}
+
+	public GP[] getIslands() {
+		return islands;
+	}
+}
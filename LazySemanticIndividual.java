@@ -0,0 +1,288 @@
+package algorithms;
+
+import java.util.Arrays;
+
+import main.Individual;
+import utils.Utils;
+
+// A semantics-only GSGP individual evaluated on mini-batches. Its training semantics are only computed
+// for the rows that have been asked for, and its unseen semantics only once it is fully evaluated. Until
+// then it keeps its parents and random trees, so the missing rows can be filled in from the parents'
+// rows (which are filled in first, recursively). Once every row is known the references are dropped.
+// The known rows are kept in a small hash table of rows; the full-length arrays are only allocated once a
+// quarter of the rows are known, so offspring that only ever see a few batches stay small. The
+// arithmetic is that of the scalar SemanticKernels, row by row.
+public class LazySemanticIndividual extends SemanticIndividual {
+
+	private static final long serialVersionUID = 7L;
+
+	protected static final byte KNOWN = 0, CROSSOVER = 1, MUTATION = 2;
+
+	protected byte operator;
+	protected transient LazySemanticIndividual parent1, parent2;
+	protected transient RandomTree randomTree1, randomTree2;
+	protected double mutationStep;
+	protected boolean boundMutation;
+	protected int trainingLength;
+	protected double[] trainingSemantics, unseenSemantics;	// trainingSemantics is null while few rows are known
+	protected boolean[] knownRows;	// along with trainingSemantics, while some rows are unknown
+	protected int[] sparseRows;	// open addressing, row + 1 or 0 for an empty slot
+	protected double[] sparseValues;
+	protected int unknownRows;
+	protected boolean unseenKnown;
+	protected int age;		// generations of unknown rows behind this individual, 0 when fully known
+
+	protected LazySemanticIndividual() {
+	}
+
+	// an individual whose semantics are all known already
+	public static LazySemanticIndividual wrap(Individual individual) {
+		LazySemanticIndividual wrapped = new LazySemanticIndividual();
+		wrapped.operator = KNOWN;
+		wrapped.trainingSemantics = individual.getTrainingOutputs();
+		wrapped.trainingLength = wrapped.trainingSemantics.length;
+		wrapped.unseenSemantics = individual.getUnseenOutputs();
+		wrapped.unseenKnown = true;
+		wrapped.setSizeOverride(true);
+		wrapped.setComputedSize(individual.getSize());
+		wrapped.setDepth(individual.getDepth());
+		wrapped.setErrors(individual.getTrainingError(), individual.getUnseenError());
+		return wrapped;
+	}
+
+	public static LazySemanticIndividual crossover(LazySemanticIndividual p1, LazySemanticIndividual p2,
+			RandomTree randomTree) {
+		LazySemanticIndividual offspring = create(CROSSOVER, p1.trainingLength, Math.max(p1.age, p2.age) + 1);
+		offspring.parent1 = p1;
+		offspring.parent2 = p2;
+		offspring.randomTree1 = randomTree;
+		return offspring;
+	}
+
+	public static LazySemanticIndividual mutation(LazySemanticIndividual p, RandomTree randomTree1,
+			RandomTree randomTree2, double mutationStep, boolean boundMutation) {
+		LazySemanticIndividual offspring = create(MUTATION, p.trainingLength, p.age + 1);
+		offspring.parent1 = p;
+		offspring.randomTree1 = randomTree1;
+		offspring.randomTree2 = randomTree2;
+		offspring.mutationStep = mutationStep;
+		offspring.boundMutation = boundMutation;
+		return offspring;
+	}
+
+	protected static LazySemanticIndividual create(byte operator, int trainingLength, int age) {
+		LazySemanticIndividual offspring = new LazySemanticIndividual();
+		offspring.operator = operator;
+		offspring.trainingLength = trainingLength;
+		offspring.unknownRows = trainingLength;
+		offspring.age = age;
+		return offspring;
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Rows
+	//
+	// makes sure the given training rows are known and returns their sum of squared errors
+	public synchronized double ensureTrainingRows(int[] rows, double[] targets) {
+		fillIn(rows);
+		double sum = 0.0;
+		for (int row : rows) {
+			double error = getTrainingRow(row) - targets[row];
+			sum += error * error;
+		}
+		release();
+		return sum;
+	}
+
+	// the values of the given training rows, which are filled in first
+	public synchronized double[] getTrainingRows(int[] rows) {
+		fillIn(rows);
+		double[] values = new double[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			values[i] = getTrainingRow(rows[i]);
+		release();
+		return values;
+	}
+
+	// the parents are only read through their own (synchronized) methods, since other offspring may be
+	// filling in their rows at the same time
+	protected void fillIn(int[] rows) {
+		if (unknownRows == 0)
+			return;
+		int[] missing = missingRows(rows);
+		if (missing.length == 0)
+			return;
+		double[] values1 = parent1.getTrainingRows(missing);
+		double[] values2 = parent2 != null ? parent2.getTrainingRows(missing) : null;
+		for (int i = 0; i < missing.length; i++)
+			if (!isKnown(missing[i]))
+				setTrainingRow(missing[i],
+						computeTrainingRow(missing[i], values1[i], values2 != null ? values2[i] : 0.0));
+	}
+
+	// computes every training and unseen row
+	public synchronized void materialize() {
+		if (unknownRows > 0) {
+			int[] all = new int[trainingLength];
+			for (int i = 0; i < all.length; i++)
+				all[i] = i;
+			fillIn(all);
+		}
+		if (trainingSemantics == null)
+			densify();
+		if (!unseenKnown) {
+			parent1.materialize();
+			if (parent2 != null)
+				parent2.materialize();
+			unseenSemantics = new double[parent1.unseenSemantics.length];
+			for (int row = 0; row < unseenSemantics.length; row++)
+				unseenSemantics[row] = computeUnseenRow(row);
+			unseenKnown = true;
+		}
+		release();
+	}
+
+	protected int[] missingRows(int[] rows) {
+		int[] missing = new int[rows.length];
+		int count = 0;
+		for (int row : rows)
+			if (!isKnown(row))
+				missing[count++] = row;
+		return count == rows.length ? missing : Arrays.copyOf(missing, count);
+	}
+
+	protected boolean isKnown(int row) {
+		if (trainingSemantics != null)
+			return knownRows == null || knownRows[row];
+		return sparseRows != null && sparseRows[findSlot(row)] != 0;
+	}
+
+	protected double getTrainingRow(int row) {
+		return trainingSemantics != null ? trainingSemantics[row] : sparseValues[findSlot(row)];
+	}
+
+	protected void setTrainingRow(int row, double value) {
+		unknownRows--;
+		if (trainingSemantics != null) {
+			trainingSemantics[row] = value;
+			knownRows[row] = true;
+			return;
+		}
+		int known = trainingLength - unknownRows;
+		if (sparseRows == null)
+			allocateSparse(16);
+		else if (known * 2 > sparseRows.length)
+			allocateSparse(sparseRows.length * 2);
+		int slot = findSlot(row);
+		sparseRows[slot] = row + 1;
+		sparseValues[slot] = value;
+		if (known * 4 > trainingLength)
+			densify();
+	}
+
+	// linear probing from a multiplicative hash of the row
+	protected int findSlot(int row) {
+		int mask = sparseRows.length - 1;
+		int hash = row * 0x9E3779B9;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		while (sparseRows[slot] != 0 && sparseRows[slot] != row + 1)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	protected void allocateSparse(int capacity) {
+		int[] rows = sparseRows;
+		double[] values = sparseValues;
+		sparseRows = new int[capacity];
+		sparseValues = new double[capacity];
+		if (rows != null)
+			for (int i = 0; i < rows.length; i++)
+				if (rows[i] != 0) {
+					int slot = findSlot(rows[i] - 1);
+					sparseRows[slot] = rows[i];
+					sparseValues[slot] = values[i];
+				}
+	}
+
+	protected void densify() {
+		trainingSemantics = new double[trainingLength];
+		knownRows = new boolean[trainingLength];
+		if (sparseRows != null)
+			for (int i = 0; i < sparseRows.length; i++)
+				if (sparseRows[i] != 0) {
+					trainingSemantics[sparseRows[i] - 1] = sparseValues[i];
+					knownRows[sparseRows[i] - 1] = true;
+				}
+		sparseRows = null;
+		sparseValues = null;
+	}
+
+	protected void release() {
+		if (unknownRows == 0 && unseenKnown && operator != KNOWN) {
+			operator = KNOWN;
+			parent1 = parent2 = null;
+			randomTree1 = randomTree2 = null;
+			knownRows = null;
+			age = 0;
+		}
+	}
+
+	protected double computeTrainingRow(int row, double parent1Value, double parent2Value) {
+		if (operator == CROSSOVER)
+			return crossover(parent1Value, parent2Value,
+					weight(randomTree1.getTrainingSemantics(), randomTree1.getLogisticTrainingSemantics(), row));
+		return mutation(parent1Value, randomTree1.getTrainingSemantics(), randomTree1.getLogisticTrainingSemantics(),
+				randomTree2.getTrainingSemantics(), randomTree2.getLogisticTrainingSemantics(), row);
+	}
+
+	protected double computeUnseenRow(int row) {
+		if (operator == CROSSOVER)
+			return crossover(parent1.unseenSemantics[row], parent2.unseenSemantics[row],
+					weight(randomTree1.getUnseenSemantics(), randomTree1.getLogisticUnseenSemantics(), row));
+		return mutation(parent1.unseenSemantics[row], randomTree1.getUnseenSemantics(),
+				randomTree1.getLogisticUnseenSemantics(), randomTree2.getUnseenSemantics(),
+				randomTree2.getLogisticUnseenSemantics(), row);
+	}
+
+	// pooled random trees already hold their logistic-transformed semantics
+	protected static double weight(double[] semantics, double[] logisticSemantics, int row) {
+		return logisticSemantics != null ? logisticSemantics[row] : Utils.logisticFunction(semantics[row]);
+	}
+
+	protected static double crossover(double parent1Value, double parent2Value, double weight) {
+		return (parent1Value * weight) + ((1.0 - weight) * parent2Value);
+	}
+
+	protected double mutation(double parentValue, double[] randomTree1Semantics, double[] randomTree1Logistic,
+			double[] randomTree2Semantics, double[] randomTree2Logistic, int row) {
+		double value1, value2;
+		if (boundMutation) {
+			value1 = weight(randomTree1Semantics, randomTree1Logistic, row);
+			value2 = weight(randomTree2Semantics, randomTree2Logistic, row);
+		} else {
+			value1 = randomTree1Semantics[row];
+			value2 = randomTree2Semantics[row];
+		}
+		return parentValue + (mutationStep * (value1 - value2));
+	}
+	// --------------------------------------------------------------------
+
+	// the outputs of the whole data set, which fills in every missing row first
+	public double[] getTrainingOutputs() {
+		materialize();
+		return trainingSemantics;
+	}
+
+	public double[] getUnseenOutputs() {
+		materialize();
+		return unseenSemantics;
+	}
+
+	public synchronized boolean isMaterialized() {
+		return operator == KNOWN;
+	}
+
+	public synchronized int getAge() {
+		return age;
+	}
+}
@@ -0,0 +1,83 @@
+package algorithms;
+
+import java.util.random.RandomGenerator;
+
+import main.Individual;
+import main.Population;
+import utils.Data;
+
+// Lexicase selection over the training cases: the cases are visited in random order and, for each one,
+// only the candidates within epsilon of the lowest absolute error on that case are kept. With an epsilon
+// of 0 this is plain lexicase selection. The error matrix and the per-thread scratch arrays are reused
+// across generations, and only grow with the population or the number of cases.
+public class LexicaseSelection implements Selection {
+
+	private static final long serialVersionUID = 7L;
+
+	protected double epsilon;
+	protected transient double[][] caseErrors;	// [case][individual]
+	protected int populationSize, numberOfCases;
+	protected transient ThreadLocal<int[][]> scratch;
+
+	public LexicaseSelection(double epsilon) {
+		this.epsilon = epsilon;
+	}
+
+	public void prepare(Population population, Data data) {
+		double[][] trainingData = data.getTrainingData();
+		populationSize = population.getSize();
+		numberOfCases = trainingData.length;
+		if (scratch == null)
+			scratch = new ThreadLocal<int[][]>();
+		if (numberOfCases == 0)
+			return;	// every individual is a candidate
+		if (caseErrors == null || caseErrors.length < numberOfCases || caseErrors[0].length < populationSize)
+			caseErrors = new double[numberOfCases][populationSize];
+		for (int i = 0; i < populationSize; i++) {
+			// stored individuals are read in place from the semantic store
+			Individual individual = population.getIndividual(i);
+			double[] outputs = GSGP.getTrainingSemantics(individual);
+			int offset = GSGP.getTrainingOffset(individual);
+			for (int c = 0; c < numberOfCases; c++)
+				caseErrors[c][i] = Math.abs(outputs[offset + c] - trainingData[c][trainingData[c].length - 1]);
+		}
+	}
+
+	public int select(RandomGenerator random) {
+		int[][] buffers = getScratch();
+		int[] candidates = buffers[0], cases = buffers[1];
+		for (int i = 0; i < populationSize; i++)
+			candidates[i] = i;
+		for (int c = 0; c < numberOfCases; c++)
+			cases[c] = c;
+
+		int numberOfCandidates = populationSize;
+		for (int remainingCases = numberOfCases; remainingCases > 0 && numberOfCandidates > 1; remainingCases--) {
+			// draw the next case without replacement (partial Fisher-Yates shuffle)
+			int pick = random.nextInt(remainingCases);
+			int trainingCase = cases[pick];
+			cases[pick] = cases[remainingCases - 1];
+			cases[remainingCases - 1] = trainingCase;
+
+			double[] errors = caseErrors[trainingCase];
+			double lowestError = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < numberOfCandidates; i++)
+				lowestError = Math.min(lowestError, errors[candidates[i]]);
+			int kept = 0;
+			for (int i = 0; i < numberOfCandidates; i++)
+				if (errors[candidates[i]] <= lowestError + epsilon)
+					candidates[kept++] = candidates[i];
+			numberOfCandidates = kept;
+		}
+		return candidates[random.nextInt(numberOfCandidates)];
+	}
+
+	protected int[][] getScratch() {
+		int[][] buffers = scratch.get();
+		if (buffers == null || buffers[0].length < populationSize || buffers[1].length < numberOfCases) {
+			buffers = new int[][] { new int[populationSize], new int[numberOfCases] };
+			scratch.set(buffers);
+		}
+		return buffers;
+	}
+}
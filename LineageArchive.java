@@ -0,0 +1,274 @@
+package algorithms;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.WeakHashMap;
+
+import main.Individual;
+import main.Population;
+import programElements.Addition;
+import programElements.Constant;
+import programElements.LogisticFunction;
+import programElements.Multiplication;
+import programElements.Subtraction;
+
+// Compact record of how every semantics-only GSGP individual was built. Per entry only the operator, the
+// ids of the parent entries, the ids of the random trees and the mutation step are kept; the programs of
+// the initial individuals and of the random trees are stored once in a shared list of trees. Memory
+// grows linearly with the number of offspring, and any archived individual can still be evaluated on
+// new data or expanded back into a full program.
+public class LineageArchive implements Serializable {
+
+	private static final long serialVersionUID = 7L;
+
+	public static final byte TREE = 0, CROSSOVER = 1, MUTATION = 2, BOUNDED_MUTATION = 3;
+
+	protected ArrayList<Individual> trees;
+	protected byte[] operators;
+	protected int[] parents;		// two per entry
+	protected int[] randomTrees;	// two per entry; for TREE entries the first one is the tree itself
+	protected double[] mutationSteps;
+	protected int size;
+	protected transient IdentityHashMap<Individual, Integer> liveEntries;
+	// the index of every random tree in trees; RandomTree keeps identity equality, and trees replaced in their
+	// pool can be collected
+	protected transient WeakHashMap<RandomTree, Integer> treeIndexes;
+
+	public LineageArchive(Population population) {
+		trees = new ArrayList<Individual>();
+		operators = new byte[population.getSize() * 2];
+		parents = new int[operators.length * 2];
+		randomTrees = new int[operators.length * 2];
+		mutationSteps = new double[operators.length];
+		liveEntries = new IdentityHashMap<Individual, Integer>();
+		treeIndexes = new WeakHashMap<RandomTree, Integer>();
+		for (int i = 0; i < population.getSize(); i++)
+			recordTree(population.getIndividual(i));
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Recording
+	//
+	public synchronized int recordTree(Individual individual) {
+		int entry = addEntry(TREE, -1, -1, addTree(individual), -1, 0.0);
+		liveEntries.put(individual, entry);
+		return entry;
+	}
+
+	// an individual made of a random tree only, e.g. one that replaced a duplicate
+	public synchronized int recordTree(Individual individual, RandomTree randomTree) {
+		int entry = addEntry(TREE, -1, -1, addTree(randomTree), -1, 0.0);
+		liveEntries.put(individual, entry);
+		return entry;
+	}
+
+	public synchronized int recordCrossover(Individual offspring, Individual p1, Individual p2,
+			RandomTree randomTree) {
+		int entry = addEntry(CROSSOVER, getEntry(p1), getEntry(p2), addTree(randomTree), -1, 0.0);
+		liveEntries.put(offspring, entry);
+		return entry;
+	}
+
+	public synchronized int recordMutation(Individual offspring, Individual p, RandomTree randomTree1,
+			RandomTree randomTree2, double mutationStep, boolean boundMutation) {
+		int entry = addEntry(boundMutation ? BOUNDED_MUTATION : MUTATION, getEntry(p), -1, addTree(randomTree1),
+				addTree(randomTree2), mutationStep);
+		liveEntries.put(offspring, entry);
+		return entry;
+	}
+
+	// forgets the individuals that did not make it into the population; their entries stay in the archive
+	public synchronized void nextGeneration(Population population) {
+		IdentityHashMap<Individual, Integer> survivors = new IdentityHashMap<Individual, Integer>();
+		for (int i = 0; i < population.getSize(); i++) {
+			Individual individual = population.getIndividual(i);
+			survivors.put(individual, getEntry(individual));
+		}
+		liveEntries = survivors;
+	}
+
+	// another object standing for the same individual, e.g. a copy holding its semantics differently
+	public synchronized void alias(Individual individual, Individual copy) {
+		liveEntries.put(copy, getEntry(individual));
+	}
+
+	public synchronized int getEntry(Individual individual) {
+		Integer entry = liveEntries.get(individual);
+		if (entry == null)
+			throw new IllegalArgumentException("Individual " + individual.getId() + " is not in the archive");
+		return entry;
+	}
+
+	// a random tree drawn several times from a RandomTreePool is only stored the first time
+	protected int addTree(RandomTree randomTree) {
+		if (treeIndexes == null)
+			treeIndexes = new WeakHashMap<RandomTree, Integer>();	// after deserialization
+		Integer index = treeIndexes.get(randomTree);
+		if (index == null) {
+			index = addTree(randomTree.getTree());
+			treeIndexes.put(randomTree, index);
+		}
+		return index;
+	}
+
+	// only the program is kept, so that the outputs of the tree can be garbage collected
+	protected int addTree(Individual tree) {
+		Individual program = new Individual();
+		appendTree(program, tree);
+		program.setDepth(tree.getDepth());
+		trees.add(program);
+		return trees.size() - 1;
+	}
+
+	protected int addEntry(byte operator, int parent1, int parent2, int randomTree1, int randomTree2,
+			double mutationStep) {
+		if (size == operators.length)
+			grow();
+		operators[size] = operator;
+		parents[size * 2] = parent1;
+		parents[size * 2 + 1] = parent2;
+		randomTrees[size * 2] = randomTree1;
+		randomTrees[size * 2 + 1] = randomTree2;
+		mutationSteps[size] = mutationStep;
+		return size++;
+	}
+
+	protected void grow() {
+		int capacity = operators.length + (operators.length >> 1) + 1;
+		byte[] newOperators = new byte[capacity];
+		int[] newParents = new int[capacity * 2];
+		int[] newRandomTrees = new int[capacity * 2];
+		double[] newMutationSteps = new double[capacity];
+		System.arraycopy(operators, 0, newOperators, 0, size);
+		System.arraycopy(parents, 0, newParents, 0, size * 2);
+		System.arraycopy(randomTrees, 0, newRandomTrees, 0, size * 2);
+		System.arraycopy(mutationSteps, 0, newMutationSteps, 0, size);
+		operators = newOperators;
+		parents = newParents;
+		randomTrees = newRandomTrees;
+		mutationSteps = newMutationSteps;
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Evaluation
+	//
+	public double[] evaluate(Individual individual, double[][] rows) {
+		return evaluate(getEntry(individual), rows);
+	}
+
+	// Evaluates an entry without expanding it. Parents are always recorded before their offspring, so
+	// the ancestors of the entry are evaluated in increasing order, and the outputs of an ancestor are
+	// released as soon as its last descendant has used them.
+	public synchronized double[] evaluate(int entry, double[][] rows) {
+		int[] pendingUses = new int[entry + 1];
+		pendingUses[entry] = 1;
+		for (int i = entry; i >= 0; i--) {
+			if (pendingUses[i] == 0 || operators[i] == TREE)
+				continue;
+			pendingUses[parents[i * 2]]++;
+			if (operators[i] == CROSSOVER)
+				pendingUses[parents[i * 2 + 1]]++;
+		}
+
+		double[][] outputs = new double[entry + 1][];
+		double[] randomTree1, randomTree2;
+		for (int i = 0; i <= entry; i++) {
+			if (pendingUses[i] == 0)
+				continue;
+			switch (operators[i]) {
+			case TREE:
+				outputs[i] = CompiledProgram.compile(trees.get(randomTrees[i * 2])).evaluate(rows);
+				break;
+			case CROSSOVER:
+				randomTree1 = CompiledProgram.compile(trees.get(randomTrees[i * 2])).evaluate(rows);
+				outputs[i] = new double[rows.length];
+				SemanticKernels.getDefault().buildCrossoverSemantics(outputs[parents[i * 2]], 0,
+						outputs[parents[i * 2 + 1]], 0, randomTree1, 0, outputs[i], 0, rows.length);
+				release(parents[i * 2 + 1], pendingUses, outputs);
+				break;
+			default:
+				randomTree1 = CompiledProgram.compile(trees.get(randomTrees[i * 2])).evaluate(rows);
+				randomTree2 = CompiledProgram.compile(trees.get(randomTrees[i * 2 + 1])).evaluate(rows);
+				outputs[i] = new double[rows.length];
+				SemanticKernels.getDefault().buildMutationSemantics(outputs[parents[i * 2]], 0, randomTree1, 0,
+						randomTree2, 0, outputs[i], 0, rows.length, mutationSteps[i],
+						operators[i] == BOUNDED_MUTATION);
+			}
+			if (operators[i] != TREE)
+				release(parents[i * 2], pendingUses, outputs);
+		}
+		return outputs[entry];
+	}
+
+	private static void release(int entry, int[] pendingUses, double[][] outputs) {
+		if (--pendingUses[entry] == 0)
+			outputs[entry] = null;
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Reconstruction
+	//
+	public Individual reconstruct(Individual individual) {
+		return reconstruct(getEntry(individual));
+	}
+
+	// Expands an entry into the same program GSGP builds when BUILD_INDIVIDUALS is set. The size of the
+	// result is exponential in the number of generations, so this is meant for the final model only.
+	public synchronized Individual reconstruct(int entry) {
+		Individual individual = new Individual();
+		appendProgram(individual, entry);
+		individual.calculateDepth();
+		return individual;
+	}
+
+	protected void appendProgram(Individual individual, int entry) {
+		switch (operators[entry]) {
+		case TREE:
+			appendTree(individual, trees.get(randomTrees[entry * 2]));
+			break;
+		case CROSSOVER:
+			Individual randomTree = trees.get(randomTrees[entry * 2]);
+			individual.addProgramElement(new Addition());
+			individual.addProgramElement(new Multiplication());
+			appendProgram(individual, parents[entry * 2]);
+			individual.addProgramElement(new LogisticFunction());
+			appendTree(individual, randomTree);
+			individual.addProgramElement(new Multiplication());
+			individual.addProgramElement(new Subtraction());
+			individual.addProgramElement(new Constant(1.0));
+			individual.addProgramElement(new LogisticFunction());
+			appendTree(individual, randomTree);
+			appendProgram(individual, parents[entry * 2 + 1]);
+			break;
+		default:
+			individual.addProgramElement(new Addition());
+			appendProgram(individual, parents[entry * 2]);
+			individual.addProgramElement(new Multiplication());
+			individual.addProgramElement(new Constant(mutationSteps[entry]));
+			individual.addProgramElement(new Subtraction());
+			if (operators[entry] == BOUNDED_MUTATION)
+				individual.addProgramElement(new LogisticFunction());
+			appendTree(individual, trees.get(randomTrees[entry * 2]));
+			if (operators[entry] == BOUNDED_MUTATION)
+				individual.addProgramElement(new LogisticFunction());
+			appendTree(individual, trees.get(randomTrees[entry * 2 + 1]));
+		}
+	}
+
+	protected static void appendTree(Individual individual, Individual tree) {
+		for (int i = 0; i < tree.getSize(); i++)
+			individual.addProgramElement(tree.getProgramElementAtIndex(i));
+	}
+	// --------------------------------------------------------------------
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getNumberOfTrees() {
+		return trees.size();
+	}
+}
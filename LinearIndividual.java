@@ -0,0 +1,28 @@
+package algorithms;
+
+import main.Individual;
+
+// An individual that keeps its LinearProgram, so that it is converted at most once however often it
+// becomes a parent or is evaluated through the cache. Offspring of GP crossover and mutation keep the
+// program they were spliced into; the individuals of the Initializer and of checkpoints get theirs when
+// LinearProgram.fromIndividual first converts them.
+public class LinearIndividual extends Individual {
+
+	private static final long serialVersionUID = 7L;
+
+	// Set when the program is converted, possibly by several breeding threads at once (see
+	// LinearProgram.fromIndividual); also rebuilt after deserialization. The conversion is left until the
+	// individual becomes a parent, since most GSGP random trees never do.
+	protected transient volatile LinearProgram program;
+
+	public LinearIndividual() {
+	}
+
+	public LinearIndividual(LinearProgram program) {
+		this.program = program;
+	}
+
+	public LinearProgram getLinearProgram() {
+		return program;
+	}
+}
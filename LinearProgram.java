@@ -0,0 +1,163 @@
+package algorithms;
+
+import main.Individual;
+import programElements.ProgramElement;
+
+// Array form of a prefix program: one opcode per node (an index into the element table of the
+// Initializer), the exclusive end of the subtree rooted at every node, the level of every node and the
+// height of the subtree rooted at it. Exchanging subtrees copies the arrays of both programs; only the
+// subtree ends after the splice point, the levels of the inserted subtree and the heights of the
+// ancestors of the splice point change. The individuals bred from a LinearProgram keep it (see
+// LinearIndividual), so a program is only converted from an Individual once.
+public class LinearProgram {
+
+	protected final Initializer initializer;
+	protected final int[] opcodes, subtreeEnds, levels, heights;
+
+	protected LinearProgram(Initializer initializer, int size) {
+		this.initializer = initializer;
+		opcodes = new int[size];
+		subtreeEnds = new int[size];
+		levels = new int[size];
+		heights = new int[size];
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Conversion
+	//
+	// The program an individual was bred with, or a conversion of its program elements. Parallel breeding
+	// workers can convert the same parent at once: each builds its own program before publishing it through
+	// the volatile field, so no thread sees a partly built one, and the copies are interchangeable.
+	public static LinearProgram fromIndividual(Individual individual, Initializer initializer) {
+		if (individual instanceof LinearIndividual) {
+			LinearIndividual linearIndividual = (LinearIndividual) individual;
+			LinearProgram program = linearIndividual.program;
+			if (program == null) {
+				program = convert(individual, initializer);
+				linearIndividual.program = program;
+			}
+			return program;
+		}
+		return convert(individual, initializer);
+	}
+
+	protected static LinearProgram convert(Individual individual, Initializer initializer) {
+		int size = individual.getSize();
+		int[] arities = initializer.getArityTable();
+		LinearProgram program = new LinearProgram(initializer, size);
+		// open operators and the number of arguments they are still missing
+		int[] openNodes = new int[size], missingArguments = new int[size];
+		int open = 0;
+		for (int i = 0; i < size; i++) {
+			int opcode = initializer.getOpcode(individual.getProgramElementAtIndex(i));
+			if (opcode < 0)
+				throw new IllegalArgumentException("Element " + i + " is not part of the initializer's sets");
+			program.opcodes[i] = opcode;
+			program.levels[i] = open;
+			if (arities[opcode] > 0) {
+				openNodes[open] = i;
+				missingArguments[open++] = arities[opcode];
+			} else {
+				program.subtreeEnds[i] = i + 1;
+				// close every operator whose last argument ends here
+				while (open > 0 && --missingArguments[open - 1] == 0)
+					program.subtreeEnds[openNodes[--open]] = i + 1;
+			}
+		}
+		// the children of a node come after it
+		for (int i = size - 1; i >= 0; i--)
+			program.updateHeight(i);
+		return program;
+	}
+
+	public Individual toIndividual() {
+		ProgramElement[] elements = initializer.getElementTable();
+		Individual individual = new LinearIndividual(this);
+		for (int i = 0; i < opcodes.length; i++)
+			individual.addProgramElement(elements[opcodes[i]]);
+		individual.setDepth(getDepth());
+		return individual;
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Variation
+	//
+	// copy of this program where the subtree at point is replaced by the subtree of donor at donorPoint
+	public LinearProgram replaceSubtree(int point, LinearProgram donor, int donorPoint) {
+		int end = subtreeEnds[point];
+		int donorEnd = donor.subtreeEnds[donorPoint];
+		int donorLength = donorEnd - donorPoint;
+		int shift = donorLength - (end - point);
+		LinearProgram offspring = new LinearProgram(initializer, opcodes.length + shift);
+
+		int suffix = opcodes.length - end;
+		copy(opcodes, donor.opcodes, offspring.opcodes, point, donorPoint, donorLength, end, suffix);
+		copy(levels, donor.levels, offspring.levels, point, donorPoint, donorLength, end, suffix);
+		copy(subtreeEnds, donor.subtreeEnds, offspring.subtreeEnds, point, donorPoint, donorLength, end, suffix);
+		copy(heights, donor.heights, offspring.heights, point, donorPoint, donorLength, end, suffix);
+
+		int levelShift = levels[point] - donor.levels[donorPoint], endShift = point - donorPoint;
+		for (int i = point; i < point + donorLength; i++) {
+			offspring.levels[i] += levelShift;
+			offspring.subtreeEnds[i] += endShift;
+		}
+		for (int i = point + donorLength; i < offspring.subtreeEnds.length; i++)
+			offspring.subtreeEnds[i] += shift;
+
+		// the ancestors of point contain the new subtree: walk down to it from the root, then update their
+		// ends and, from the deepest one up, their heights
+		int[] ancestors = new int[levels[point]];
+		for (int node = 0, level = 0; node != point; level++) {
+			ancestors[level] = node;
+			offspring.subtreeEnds[node] += shift;
+			node++;
+			while (subtreeEnds[node] <= point)
+				node = subtreeEnds[node];
+		}
+		for (int level = ancestors.length - 1; level >= 0; level--)
+			offspring.updateHeight(ancestors[level]);
+		return offspring;
+	}
+
+	// prefix of program up to point, the donor subtree, and the suffix of program from end
+	protected static void copy(int[] program, int[] donor, int[] offspring, int point, int donorPoint,
+			int donorLength, int end, int suffix) {
+		System.arraycopy(program, 0, offspring, 0, point);
+		System.arraycopy(donor, donorPoint, offspring, point, donorLength);
+		System.arraycopy(program, end, offspring, point + donorLength, suffix);
+	}
+
+	// from the heights of the children of the node
+	protected void updateHeight(int node) {
+		int height = -1;
+		for (int child = node + 1; child < subtreeEnds[node]; child = subtreeEnds[child])
+			height = Math.max(height, heights[child]);
+		heights[node] = height + 1;
+	}
+	// --------------------------------------------------------------------
+
+	public int getSize() {
+		return opcodes.length;
+	}
+
+	public int getDepth() {
+		return heights[0];
+	}
+
+	public int getOpcode(int index) {
+		return opcodes[index];
+	}
+
+	public int getSubtreeEnd(int index) {
+		return subtreeEnds[index];
+	}
+
+	public int getLevel(int index) {
+		return levels[index];
+	}
+
+	public int getHeight(int index) {
+		return heights[index];
+	}
+}
@@ -0,0 +1,59 @@
+package algorithms;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Migration between islands running as threads of the same JVM, through one queue per island. The
+// packets of every island are queued in the order they are sent. A finished island empties its queue;
+// its sources stop adding to it once they have read its finish packet.
+public class LocalMigration extends Migration {
+
+	protected BlockingQueue<Packet>[] inboxes;
+
+	protected LocalMigration(MigrationTopology topology, int island, int interval, int size,
+			BlockingQueue<Packet>[] inboxes) {
+		super(topology, island, interval, size);
+		this.inboxes = inboxes;
+	}
+
+	// the connected migrations of all islands of the topology
+	@SuppressWarnings("unchecked")
+	public static LocalMigration[] create(MigrationTopology topology, int interval, int size) {
+		int islands = topology.getNumberOfIslands();
+		BlockingQueue<Packet>[] inboxes = new BlockingQueue[islands];
+		for (int i = 0; i < islands; i++)
+			inboxes[i] = new LinkedBlockingQueue<Packet>();
+		LocalMigration[] migrations = new LocalMigration[islands];
+		for (int i = 0; i < islands; i++)
+			migrations[i] = new LocalMigration(topology, i, interval, size, inboxes);
+		return migrations;
+	}
+
+	protected void send(int destination, int generation, byte[] data) {
+		inboxes[destination].add(new Packet(island, generation, data));
+	}
+
+	protected void notifySource(int source) {
+		send(source, -1, null);
+	}
+
+	protected Packet poll() {
+		return inboxes[island].poll();
+	}
+
+	public void finish() throws IOException {
+		super.finish();
+		inboxes[island].clear();
+	}
+
+	protected Packet take() throws IOException {
+		try {
+			return inboxes[island].take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Island " + island + " was interrupted while waiting for immigrants");
+		}
+	}
+}
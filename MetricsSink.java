@@ -0,0 +1,16 @@
+package algorithms;
+
+// Receives one record per generation of a run. The values of a record follow the order of FIELDS: the
+// eight values GP.addValue writes into Main.output, followed by the time (in nanoseconds, summed over the
+// breeding threads) spent in selection, variation, evaluation and replacement during that generation.
+public interface MetricsSink {
+
+	String[] FIELDS = { "run", "generation", "trainingError", "unseenError", "size", "depth", "bloat", "overfitting",
+			"selectionNanos", "variationNanos", "evaluationNanos", "replacementNanos" };
+
+	// may be called concurrently by several runs; the array is not kept after the call returns
+	void record(double[] values);
+
+	// writes the pending records and releases the output
+	void close();
+}
@@ -0,0 +1,13 @@
+package algorithms;
+
+import java.io.IOException;
+
+// Output of an AsyncMetricsSink; only ever called from the writer thread of the sink
+public interface MetricsWriter {
+
+	void write(double[] values) throws IOException;
+
+	void flush() throws IOException;
+
+	void close() throws IOException;
+}
@@ -0,0 +1,229 @@
+package algorithms;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import main.Individual;
+import main.Population;
+
+// Migration between the islands of an island model. Every interval generations, right after replacement,
+// an island sends copies of its best individuals to the islands the topology connects it to, and waits
+// for the emigrants of the same generation from every island that sends to it. The immigrants replace
+// the worst individuals, never the elite. Individuals travel in the encoding of Checkpoint, so islands
+// have to work on the same data set; subclasses only move the encoded packets between islands.
+//
+// An island that stops (finish, also called by close and when a stopping criterion ends its search)
+// sends a packet without data to its destinations, which from then on stop waiting for its emigrants, and
+// to its sources, which stop sending to it. Every island reads the packets that have already arrived
+// before it sends, so it learns of a finished destination even if it never receives from it.
+public abstract class Migration {
+
+	protected static class Packet {
+		protected final int source, generation;
+		protected final byte[] data;	// null for the packet of an island that finished
+
+		protected Packet(int source, int generation, byte[] data) {
+			this.source = source;
+			this.generation = generation;
+			this.data = data;
+		}
+	}
+
+	protected MigrationTopology topology;
+	protected int island, interval, size;
+	protected Map<Long, byte[]> pending;	// packets that arrived before they were waited for
+	protected boolean[] finishedIslands;
+	protected boolean finished;
+
+	protected Migration(MigrationTopology topology, int island, int interval, int size) {
+		this.topology = topology;
+		this.island = island;
+		this.interval = interval;
+		this.size = size;
+		pending = new HashMap<Long, byte[]>();
+		finishedIslands = new boolean[topology.getNumberOfIslands()];
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Migration
+	//
+	// a finished island neither sends nor receives
+	public Population migrate(GP gp, Population population) {
+		if (finished || interval <= 0 || gp.currentGen % interval != 0)
+			return population;
+		try {
+			byte[] emigrants = encode(gp, best(population, size));
+			// an island that finished no longer reads its immigrants
+			drain();
+			for (int destination : topology.getDestinations(island))
+				if (!finishedIslands[destination])
+					send(destination, gp.currentGen, emigrants);
+			// sources are in increasing order, so the immigrants are always integrated in the same order
+			List<Individual> immigrants = new ArrayList<Individual>();
+			for (int source : topology.getSources(island)) {
+				byte[] data = receive(source, gp.currentGen);
+				if (data != null)
+					decode(gp, data, immigrants);
+			}
+			return integrate(population, immigrants);
+		} catch (IOException e) {
+			throw new IllegalStateException("Migration of island " + island + " failed", e);
+		}
+	}
+
+	protected static Individual[] best(Population population, int count) {
+		Integer[] order = rank(population);
+		Individual[] best = new Individual[Math.min(count, order.length)];
+		for (int i = 0; i < best.length; i++)
+			best[i] = population.getIndividual(order[i]);
+		return best;
+	}
+
+	// the elite (first individual) stays; the worst others make room for the immigrants
+	protected static Population integrate(Population population, List<Individual> immigrants) {
+		Integer[] order = rank(population);
+		Individual[] individuals = new Individual[population.getSize()];
+		for (int i = 0; i < individuals.length; i++)
+			individuals[i] = population.getIndividual(i);
+		int next = 0;
+		for (int i = order.length - 1; i >= 0 && next < immigrants.size(); i--)
+			if (order[i] != 0)
+				individuals[order[i]] = immigrants.get(next++);
+		Population integrated = new Population();
+		for (Individual individual : individuals)
+			integrated.addIndividual(individual);
+		return integrated;
+	}
+
+	// indexes from best to worst training error; ties keep the population order
+	protected static Integer[] rank(final Population population) {
+		Integer[] order = new Integer[population.getSize()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Double.compare(population.getIndividual(a).getTrainingError(),
+						population.getIndividual(b).getTrainingError());
+			}
+		});
+		return order;
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Encoding
+	//
+	protected static byte[] encode(GP gp, Individual[] individuals) {
+		boolean semantics = Checkpoint.isSemanticsOnly(gp);
+		int trainingLength = gp.data.getTrainingData().length, unseenLength = gp.data.getUnseenData().length;
+		int size = 4;
+		for (Individual individual : individuals)
+			size += Checkpoint.sizeOf(individual, gp.initializer, semantics, trainingLength, unseenLength);
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.putInt(individuals.length);
+		for (Individual individual : individuals)
+			Checkpoint.writeIndividual(buffer, individual, gp.initializer, semantics, trainingLength, unseenLength);
+		return buffer.array();
+	}
+
+	protected static void decode(GP gp, byte[] data, List<Individual> immigrants) {
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		int count = buffer.getInt();
+		for (int i = 0; i < count; i++)
+			immigrants.add(gp.adoptImmigrant(Checkpoint.readIndividual(buffer, gp.initializer)));
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Transport
+	//
+	// null once the source has finished without sending emigrants for the generation; every source sends
+	// its packets in order, so those of earlier generations have arrived by then
+	protected byte[] receive(int source, int generation) throws IOException {
+		byte[] data;
+		while ((data = pending.remove(key(source, generation))) == null) {
+			if (finishedIslands[source])
+				return null;
+			deliver(take());
+		}
+		return data;
+	}
+
+	// handles the packets that have arrived, without waiting for more
+	protected void drain() throws IOException {
+		Packet packet;
+		while ((packet = poll()) != null)
+			deliver(packet);
+	}
+
+	protected void deliver(Packet packet) {
+		if (packet.data == null)
+			finishedIslands[packet.source] = true;
+		else
+			pending.put(key(packet.source, packet.generation), packet.data);
+	}
+
+	protected static long key(int source, int generation) {
+		return ((long) generation << 32) | source;
+	}
+
+	protected abstract void send(int destination, int generation, byte[] data) throws IOException;
+
+	// blocks until the next packet for this island arrives
+	protected abstract Packet take() throws IOException;
+
+	// the next packet for this island, or null if none has arrived yet
+	protected abstract Packet poll() throws IOException;
+
+	// delivers the packet of a finished island to a source that is not one of its destinations
+	protected abstract void notifySource(int source) throws IOException;
+
+	// tells the destinations that this island sends no more emigrants, and the sources that it reads no
+	// more immigrants; later calls do nothing
+	public void finish() throws IOException {
+		if (finished)
+			return;
+		finished = true;
+		int[] destinations = topology.getDestinations(island);
+		for (int destination : destinations)
+			if (!finishedIslands[destination])
+				send(destination, -1, null);
+		for (int source : topology.getSources(island))
+			if (!finishedIslands[source] && !contains(destinations, source))
+				notifySource(source);
+	}
+
+	protected static boolean contains(int[] islands, int island) {
+		for (int other : islands)
+			if (other == island)
+				return true;
+		return false;
+	}
+
+	public void close() throws IOException {
+		finish();
+	}
+	// --------------------------------------------------------------------
+
+	public int getIsland() {
+		return island;
+	}
+
+	public int getInterval() {
+		return interval;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+}
@@ -0,0 +1,60 @@
+package algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Which islands every island sends its emigrants to
+public class MigrationTopology {
+
+	protected int[][] destinations;
+	protected int[][] sources;
+
+	public MigrationTopology(int[][] destinations) {
+		this.destinations = destinations;
+		List<List<Integer>> incoming = new ArrayList<List<Integer>>();
+		for (int i = 0; i < destinations.length; i++)
+			incoming.add(new ArrayList<Integer>());
+		for (int i = 0; i < destinations.length; i++)
+			for (int destination : destinations[i]) {
+				if (destination == i || destination < 0 || destination >= destinations.length)
+					throw new IllegalArgumentException("Island " + i + " cannot send to island " + destination);
+				incoming.get(destination).add(i);
+			}
+		sources = new int[destinations.length][];
+		for (int i = 0; i < destinations.length; i++) {
+			sources[i] = new int[incoming.get(i).size()];
+			for (int j = 0; j < sources[i].length; j++)
+				sources[i][j] = incoming.get(i).get(j);
+		}
+	}
+
+	// every island sends to the next one
+	public static MigrationTopology ring(int islands) {
+		int[][] destinations = new int[islands][];
+		for (int i = 0; i < islands; i++)
+			destinations[i] = islands > 1 ? new int[] { (i + 1) % islands } : new int[0];
+		return new MigrationTopology(destinations);
+	}
+
+	// every island sends to all others
+	public static MigrationTopology fullyConnected(int islands) {
+		int[][] destinations = new int[islands][islands - 1];
+		for (int i = 0; i < islands; i++)
+			for (int j = 0, k = 0; j < islands; j++)
+				if (j != i)
+					destinations[i][k++] = j;
+		return new MigrationTopology(destinations);
+	}
+
+	public int getNumberOfIslands() {
+		return destinations.length;
+	}
+
+	public int[] getDestinations(int island) {
+		return destinations[island];
+	}
+
+	public int[] getSources(int island) {
+		return sources[island];
+	}
+}
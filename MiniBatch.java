@@ -0,0 +1,102 @@
+package algorithms;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.random.RandomGenerator;
+
+// Schedule of the training rows offspring are evaluated on. Every generation draws a batch without
+// replacement, either uniformly or stratified by target (the rows are split into strata of equal size by
+// target value, and every stratum contributes in proportion). The batch size can grow linearly from an
+// initial to a final size over a number of generations; a final size of 0 means all training rows.
+public class MiniBatch {
+
+	protected int initialSize, finalSize, rampGenerations, strata;
+	protected int[] indexes;		// row indexes, grouped by stratum
+	protected int[] strataStarts;
+
+	public MiniBatch(int size) {
+		this(size, size, 0);
+	}
+
+	public MiniBatch(int initialSize, int finalSize, int rampGenerations) {
+		this.initialSize = initialSize;
+		this.finalSize = finalSize;
+		this.rampGenerations = rampGenerations;
+		strata = 1;
+	}
+
+	// splits the rows into the given number of strata by target value; 1 samples uniformly
+	public void setStrata(int strata) {
+		this.strata = Math.max(1, strata);
+		indexes = null;
+	}
+
+	public int getSize(int generation, int numberOfRows) {
+		int last = finalSize <= 0 ? numberOfRows : finalSize;
+		int size = last;
+		if (rampGenerations > 0 && generation < rampGenerations)
+			size = initialSize + (int) ((long) (last - initialSize) * generation / rampGenerations);
+		return Math.max(1, Math.min(size, numberOfRows));
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Sampling
+	//
+	// the batch of the given generation as increasing row indexes
+	public int[] sample(double[][] rows, int generation, RandomGenerator random) {
+		if (indexes == null || indexes.length != rows.length)
+			group(rows);
+		int size = getSize(generation, rows.length);
+		int[] batch = new int[size];
+		int taken = 0;
+		for (int s = 0; s < strata; s++) {
+			int start = strataStarts[s], length = strataStarts[s + 1] - start;
+			// the last stratum takes whatever rounding left over
+			int count = s == strata - 1 ? size - taken : (int) ((long) size * length / rows.length);
+			count = Math.min(count, length);
+			// partial Fisher-Yates shuffle of the stratum
+			for (int i = 0; i < count; i++) {
+				int j = start + i + random.nextInt(length - i);
+				int swap = indexes[start + i];
+				indexes[start + i] = indexes[j];
+				indexes[j] = swap;
+				batch[taken++] = indexes[start + i];
+			}
+		}
+		if (taken < size)
+			batch = Arrays.copyOf(batch, taken);
+		Arrays.sort(batch);
+		return batch;
+	}
+
+	protected void group(double[][] rows) {
+		int numberOfStrata = Math.min(strata, rows.length);
+		Integer[] order = new Integer[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			order[i] = i;
+		if (numberOfStrata > 1) {
+			final double[][] data = rows;
+			Arrays.sort(order, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					return Double.compare(data[a][data[a].length - 1], data[b][data[b].length - 1]);
+				}
+			});
+		}
+		indexes = new int[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			indexes[i] = order[i];
+		strata = numberOfStrata;
+		strataStarts = new int[strata + 1];
+		for (int s = 0; s <= strata; s++)
+			strataStarts[s] = (int) ((long) rows.length * s / strata);
+	}
+	// --------------------------------------------------------------------
+
+	// rows of the given indexes, shared with the data set
+	public static double[][] select(double[][] rows, int[] batch) {
+		double[][] selected = new double[batch.length][];
+		for (int i = 0; i < batch.length; i++)
+			selected[i] = rows[batch[i]];
+		return selected;
+	}
+}
@@ -0,0 +1,62 @@
+package algorithms;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Adapts the mutation step of GSGP once per generation by the success rule of evolution strategies: a
+// mutation succeeds when the offspring has a lower training error than its parent; when more mutations
+// than the target rate succeeded the step grows by the factor, when fewer did it shrinks by it. Generations
+// with fewer than minimumMutations mutations leave the step as it is. Offspring may be recorded
+// concurrently.
+public class MutationStepAdaptation {
+
+	protected double targetRate, factor, minimumStep, maximumStep;
+	protected int minimumMutations;
+	protected LongAdder mutations, successes;
+	protected double lastRate;
+
+	// the one-fifth rule
+	public MutationStepAdaptation() {
+		this(0.2, 1.2, 1e-6, 10.0);
+	}
+
+	public MutationStepAdaptation(double targetRate, double factor, double minimumStep, double maximumStep) {
+		if (factor <= 1.0)
+			throw new IllegalArgumentException("The factor has to be greater than 1");
+		this.targetRate = targetRate;
+		this.factor = factor;
+		this.minimumStep = minimumStep;
+		this.maximumStep = maximumStep;
+		minimumMutations = 5;
+		mutations = new LongAdder();
+		successes = new LongAdder();
+		lastRate = Double.NaN;
+	}
+
+	public void record(double parentError, double offspringError) {
+		mutations.increment();
+		if (offspringError < parentError)
+			successes.increment();
+	}
+
+	// the step for the next generation; resets the counts
+	public double adapt(double mutationStep) {
+		long count = mutations.sumThenReset(), succeeded = successes.sumThenReset();
+		if (count < minimumMutations)
+			return mutationStep;
+		lastRate = (double) succeeded / count;
+		if (lastRate > targetRate)
+			mutationStep *= factor;
+		else if (lastRate < targetRate)
+			mutationStep /= factor;
+		return Math.max(minimumStep, Math.min(maximumStep, mutationStep));
+	}
+
+	// success rate of the last adapted generation
+	public double getLastRate() {
+		return lastRate;
+	}
+
+	public void setMinimumMutations(int minimumMutations) {
+		this.minimumMutations = minimumMutations;
+	}
+}
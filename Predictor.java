@@ -0,0 +1,16 @@
+package algorithms;
+
+import java.nio.DoubleBuffer;
+
+// A final model compiled into a class of its own by PredictorCompiler. Instances hold no state between
+// calls, so one instance can score on several threads at once.
+public interface Predictor {
+
+	double predict(double[] row);
+
+	// one output per row; the rows may hold the target as their last column
+	void predict(double[][] rows, double[] outputs);
+
+	// reads the rows straight from the columns, e.g. the memory-mapped ones of ColumnarDataset
+	void predict(DoubleBuffer[] columns, int rows, double[] outputs);
+}
@@ -0,0 +1,427 @@
+package algorithms;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import main.Individual;
+import programElements.Constant;
+import programElements.InputVariable;
+import programElements.Operator;
+import programElements.ProgramElement;
+
+// Turns a final model into Java source, compiles it in memory with the system Java compiler and loads it
+// as a hidden class, which the JIT then compiles like hand-written code. The model is first turned into a
+// graph in which equal subexpressions are computed once: repeated subtrees of a GP individual, and the
+// parents and random trees GSGP offspring share in the lineage archive. Every operator becomes one
+// statement; the statements are split into methods small enough for the JIT to compile, which pass
+// values used by later methods through a scratch array. Operators other than those of the Initializer
+// sets are called through performOperation with one argument array per node, allocated once per call to
+// predict like the scratch array. The arithmetic is that of CompiledProgram and of
+// the scalar SemanticKernels, so the outputs are those of the interpreter. Needs a JDK (javax.tools).
+public class PredictorCompiler {
+
+	// the opcodes of CompiledProgram
+	protected static final int CONSTANT = 0, INPUT = 1, ADD = 2, SUB = 3, MUL = 4, DIV = 5, LOGISTIC = 6,
+			GENERIC = 7;
+	protected static final int STATEMENTS_PER_METHOD = 200;
+	protected static final String CLASS_NAME = "GeneratedPredictor";
+
+	protected static class Node {
+		protected final int kind;
+		protected final int[] arguments;
+		protected final double constant;
+		protected final int operator;	// index into operators for GENERIC, the input index for INPUT
+
+		protected Node(int kind, int[] arguments, double constant, int operator) {
+			this.kind = kind;
+			this.arguments = arguments;
+			this.constant = constant;
+			this.operator = operator;
+		}
+
+		public int hashCode() {
+			return 31 * (31 * (31 * kind + Arrays.hashCode(arguments)) + Double.hashCode(constant)) + operator;
+		}
+
+		public boolean equals(Object other) {
+			Node node = (Node) other;
+			return kind == node.kind && operator == node.operator && Arrays.equals(arguments, node.arguments)
+					&& Double.doubleToLongBits(constant) == Double.doubleToLongBits(node.constant);
+		}
+	}
+
+	protected List<Node> nodes;
+	protected HashMap<Node, Integer> nodeIndexes;
+	protected List<Operator> operators;
+	protected int dimensionality;
+
+	protected PredictorCompiler() {
+		nodes = new ArrayList<Node>();
+		nodeIndexes = new HashMap<Node, Integer>();
+		operators = new ArrayList<Operator>();
+	}
+
+	public static Predictor compile(Individual individual) {
+		PredictorCompiler compiler = new PredictorCompiler();
+		return compiler.load(compiler.generateSource(compiler.addProgram(individual)));
+	}
+
+	// the model of an individual of a semantics-only GSGP run, which only the lineage archive has
+	public static Predictor compile(LineageArchive archive, Individual individual) {
+		PredictorCompiler compiler = new PredictorCompiler();
+		int output;
+		synchronized (archive) {
+			output = compiler.addEntry(archive, archive.getEntry(individual));
+		}
+		return compiler.load(compiler.generateSource(output));
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Graph
+	//
+	protected int addNode(int kind, int[] arguments, double constant, int operator) {
+		Node node = new Node(kind, arguments, constant, operator);
+		Integer index = nodeIndexes.get(node);
+		if (index == null) {
+			index = nodes.size();
+			nodes.add(node);
+			nodeIndexes.put(node, index);
+		}
+		return index;
+	}
+
+	protected int addOperation(int kind, int... arguments) {
+		return addNode(kind, arguments, 0.0, 0);
+	}
+
+	protected int addConstant(double value) {
+		return addNode(CONSTANT, new int[0], value, 0);
+	}
+
+	// reading the prefix program right to left leaves the first argument of every operator on top
+	protected int addProgram(Individual program) {
+		int[] stack = new int[program.getSize()];
+		int top = -1;
+		for (int i = program.getSize() - 1; i >= 0; i--) {
+			ProgramElement element = program.getProgramElementAtIndex(i);
+			if (element instanceof Constant)
+				stack[++top] = addConstant(((Constant) element).getValue());
+			else if (element instanceof InputVariable) {
+				int input = ((InputVariable) element).getIndex();
+				dimensionality = Math.max(dimensionality, input + 1);
+				stack[++top] = addNode(INPUT, new int[0], 0.0, input);
+			} else {
+				Operator operator = (Operator) element;
+				int[] arguments = new int[operator.getArity()];
+				for (int a = 0; a < arguments.length; a++)
+					arguments[a] = stack[top--];
+				int opcode = CompiledProgram.opcodeOf(operator);
+				if (opcode == GENERIC) {
+					int index = operators.indexOf(operator);
+					if (index < 0) {
+						index = operators.size();
+						operators.add(operator);
+					}
+					stack[++top] = addNode(GENERIC, arguments, 0.0, index);
+				} else
+					stack[++top] = addOperation(opcode, arguments);
+			}
+		}
+		if (top != 0)
+			throw new IllegalArgumentException("Malformed program: " + (top + 1) + " values left on the stack");
+		return stack[0];
+	}
+
+	// the ancestors of the entry in increasing order, as in LineageArchive.evaluate
+	protected int addEntry(LineageArchive archive, int entry) {
+		boolean[] needed = new boolean[entry + 1];
+		needed[entry] = true;
+		for (int i = entry; i >= 0; i--) {
+			if (!needed[i] || archive.operators[i] == LineageArchive.TREE)
+				continue;
+			needed[archive.parents[i * 2]] = true;
+			if (archive.operators[i] == LineageArchive.CROSSOVER)
+				needed[archive.parents[i * 2 + 1]] = true;
+		}
+
+		int[] entryNodes = new int[entry + 1];
+		int[] treeNodes = new int[archive.trees.size()];
+		Arrays.fill(treeNodes, -1);
+		int one = addConstant(1.0);
+		for (int i = 0; i <= entry; i++) {
+			if (!needed[i])
+				continue;
+			int tree1 = addTree(archive, archive.randomTrees[i * 2], treeNodes);
+			switch (archive.operators[i]) {
+			case LineageArchive.TREE:
+				entryNodes[i] = tree1;
+				break;
+			case LineageArchive.CROSSOVER: {
+				// (parent1 * weight) + ((1 - weight) * parent2)
+				int weight = addOperation(LOGISTIC, tree1);
+				entryNodes[i] = addOperation(ADD, addOperation(MUL, entryNodes[archive.parents[i * 2]], weight),
+						addOperation(MUL, addOperation(SUB, one, weight), entryNodes[archive.parents[i * 2 + 1]]));
+				break;
+			}
+			default: {
+				// parent + (mutationStep * (value1 - value2))
+				int tree2 = addTree(archive, archive.randomTrees[i * 2 + 1], treeNodes);
+				if (archive.operators[i] == LineageArchive.BOUNDED_MUTATION) {
+					tree1 = addOperation(LOGISTIC, tree1);
+					tree2 = addOperation(LOGISTIC, tree2);
+				}
+				entryNodes[i] = addOperation(ADD, entryNodes[archive.parents[i * 2]],
+						addOperation(MUL, addConstant(archive.mutationSteps[i]), addOperation(SUB, tree1, tree2)));
+			}
+			}
+		}
+		return entryNodes[entry];
+	}
+
+	protected int addTree(LineageArchive archive, int tree, int[] treeNodes) {
+		if (treeNodes[tree] < 0)
+			treeNodes[tree] = addProgram(archive.trees.get(tree));
+		return treeNodes[tree];
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Source
+	//
+	protected String generateSource(int output) {
+		// operator nodes get consecutive statement numbers; inputs and constants are written inline
+		int[] statements = new int[nodes.size()];
+		int numberOfStatements = 0;
+		for (int n = 0; n < nodes.size(); n++)
+			statements[n] = nodes.get(n).kind <= INPUT ? -1 : numberOfStatements++;
+		int methods = (numberOfStatements + STATEMENTS_PER_METHOD - 1) / STATEMENTS_PER_METHOD;
+
+		// values used by a later method (and the output, when there are several methods) go through the
+		// scratch array
+		int[] slots = new int[nodes.size()];
+		Arrays.fill(slots, -1);
+		int numberOfSlots = 0;
+		for (int n = 0; n < nodes.size(); n++) {
+			if (statements[n] < 0)
+				continue;
+			for (int argument : nodes.get(n).arguments) {
+				if (statements[argument] >= 0 && slots[argument] < 0
+						&& method(statements[argument]) != method(statements[n]))
+					slots[argument] = numberOfSlots++;
+			}
+		}
+		if (methods > 1 && slots[output] < 0)
+			slots[output] = numberOfSlots++;
+
+		// one argument array per generic operator node
+		int[] argumentArrays = new int[nodes.size()];
+		StringBuilder allocation = new StringBuilder("new double[][] {");
+		int numberOfArgumentArrays = 0;
+		for (int n = 0; n < nodes.size(); n++)
+			if (nodes.get(n).kind == GENERIC) {
+				allocation.append(numberOfArgumentArrays == 0 ? " " : ", ").append("new double[")
+						.append(nodes.get(n).arguments.length).append("]");
+				argumentArrays[n] = numberOfArgumentArrays++;
+			}
+		allocation.append(numberOfArgumentArrays == 0 ? "}" : " }");
+
+		StringBuilder source = new StringBuilder();
+		source.append("package algorithms;\n\n");
+		source.append("import java.nio.DoubleBuffer;\n\n");
+		source.append("import programElements.Operator;\n");
+		source.append("import utils.Utils;\n\n");
+		source.append("final class ").append(CLASS_NAME).append(" implements Predictor {\n\n");
+		source.append("\tprivate final Operator[] operators;\n\n");
+		source.append("\t").append(CLASS_NAME).append("(Operator[] operators) {\n");
+		source.append("\t\tthis.operators = operators;\n\t}\n\n");
+
+		source.append("\tpublic double predict(double[] row) {\n");
+		source.append("\t\treturn row(row, new double[").append(numberOfSlots).append("], ").append(allocation)
+				.append(");\n\t}\n\n");
+
+		source.append("\tpublic void predict(double[][] rows, double[] outputs) {\n");
+		source.append("\t\tdouble[] v = new double[").append(numberOfSlots).append("];\n");
+		source.append("\t\tdouble[][] a = ").append(allocation).append(";\n");
+		source.append("\t\tfor (int r = 0; r < rows.length; r++)\n");
+		source.append("\t\t\toutputs[r] = row(rows[r], v, a);\n\t}\n\n");
+
+		source.append("\tpublic void predict(DoubleBuffer[] columns, int rows, double[] outputs) {\n");
+		source.append("\t\tdouble[] v = new double[").append(numberOfSlots).append("];\n");
+		source.append("\t\tdouble[] x = new double[").append(dimensionality).append("];\n");
+		source.append("\t\tdouble[][] a = ").append(allocation).append(";\n");
+		source.append("\t\tfor (int r = 0; r < rows; r++) {\n");
+		boolean[] used = new boolean[dimensionality];
+		for (Node node : nodes)
+			if (node.kind == INPUT && !used[node.operator]) {
+				used[node.operator] = true;
+				source.append("\t\t\tx[").append(node.operator).append("] = columns[").append(node.operator)
+						.append("].get(r);\n");
+			}
+		source.append("\t\t\toutputs[r] = row(x, v, a);\n\t\t}\n\t}\n\n");
+
+		if (methods <= 1) {
+			source.append("\tprivate double row(double[] x, double[] v, double[][] a) {\n");
+			appendStatements(source, 0, nodes.size(), statements, slots, argumentArrays);
+			source.append("\t\treturn ").append(reference(output, 0, statements, slots)).append(";\n\t}\n");
+		} else {
+			source.append("\tprivate double row(double[] x, double[] v, double[][] a) {\n");
+			for (int m = 0; m < methods; m++)
+				source.append("\t\tm").append(m).append("(x, v, a);\n");
+			source.append("\t\treturn v[").append(slots[output]).append("];\n\t}\n");
+			int start = 0;
+			for (int m = 0; m < methods; m++) {
+				int end = start;
+				while (end < nodes.size() && (statements[end] < 0 || method(statements[end]) == m))
+					end++;
+				source.append("\n\tprivate void m").append(m).append("(double[] x, double[] v, double[][] a) {\n");
+				appendStatements(source, start, end, statements, slots, argumentArrays);
+				source.append("\t}\n");
+				start = end;
+			}
+		}
+		source.append("}\n");
+		return source.toString();
+	}
+
+	protected static int method(int statement) {
+		return statement / STATEMENTS_PER_METHOD;
+	}
+
+	protected void appendStatements(StringBuilder source, int start, int end, int[] statements, int[] slots,
+			int[] argumentArrays) {
+		for (int n = start; n < end; n++) {
+			if (statements[n] < 0)
+				continue;
+			Node node = nodes.get(n);
+			int method = method(statements[n]);
+			String[] arguments = new String[node.arguments.length];
+			for (int a = 0; a < arguments.length; a++)
+				arguments[a] = reference(node.arguments[a], method, statements, slots);
+			if (node.kind == GENERIC)
+				for (int a = 0; a < arguments.length; a++)
+					source.append("\t\ta[").append(argumentArrays[n]).append("][").append(a).append("] = ")
+							.append(arguments[a]).append(";\n");
+			source.append("\t\tdouble t").append(statements[n]).append(" = ");
+			switch (node.kind) {
+			case ADD:
+				source.append(arguments[0]).append(" + ").append(arguments[1]);
+				break;
+			case SUB:
+				source.append(arguments[0]).append(" - ").append(arguments[1]);
+				break;
+			case MUL:
+				source.append(arguments[0]).append(" * ").append(arguments[1]);
+				break;
+			case DIV:
+				// same protection as ProtectedDivision: a zero denominator yields 1
+				source.append(arguments[1]).append(" == 0.0 ? 1.0 : ").append(arguments[0]).append(" / ")
+						.append(arguments[1]);
+				break;
+			case LOGISTIC:
+				source.append("Utils.logisticFunction(").append(arguments[0]).append(")");
+				break;
+			default:
+				source.append("operators[").append(node.operator).append("].performOperation(a[")
+						.append(argumentArrays[n]).append("])");
+			}
+			source.append(";\n");
+			if (slots[n] >= 0)
+				source.append("\t\tv[").append(slots[n]).append("] = t").append(statements[n]).append(";\n");
+		}
+	}
+
+	// the expression for the value of a node inside the given method
+	protected String reference(int n, int method, int[] statements, int[] slots) {
+		Node node = nodes.get(n);
+		if (node.kind == INPUT)
+			return "x[" + node.operator + "]";
+		if (node.kind == CONSTANT)
+			return literal(node.constant);
+		if (method(statements[n]) == method)
+			return "t" + statements[n];
+		return "v[" + slots[n] + "]";
+	}
+
+	protected static String literal(double value) {
+		if (Double.isNaN(value))
+			return "Double.NaN";
+		if (Double.isInfinite(value))
+			return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+		String literal = Double.toString(value);
+		return value < 0 || literal.startsWith("-") ? "(" + literal + ")" : literal;
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Loading
+	//
+	protected Predictor load(String source) {
+		byte[] bytes = compileSource(source);
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+			MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(),
+					MethodType.methodType(void.class, Operator[].class));
+			return (Predictor) constructor.invoke(operators.toArray(new Operator[operators.size()]));
+		} catch (Throwable e) {
+			throw new IllegalStateException("Could not load the generated predictor", e);
+		}
+	}
+
+	protected static byte[] compileSource(final String source) {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+			throw new IllegalStateException("Compiling predictors needs a JDK, this runtime has no Java compiler");
+		JavaFileObject sourceFile = new SimpleJavaFileObject(
+				URI.create("string:///algorithms/" + CLASS_NAME + JavaFileObject.Kind.SOURCE.extension),
+				JavaFileObject.Kind.SOURCE) {
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+		final ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+		StandardJavaFileManager standardManager = compiler.getStandardFileManager(null, null, null);
+		JavaFileManager fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(standardManager) {
+			public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className,
+					JavaFileObject.Kind kind, FileObject sibling) {
+				return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/') + kind.extension),
+						kind) {
+					public OutputStream openOutputStream() {
+						return classFile;
+					}
+				};
+			}
+		};
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"), "-g:none",
+				"-proc:none", "-nowarn");
+		boolean compiled = compiler.getTask(null, fileManager, diagnostics, options, null, Arrays.asList(sourceFile))
+				.call();
+		if (!compiled) {
+			StringBuilder message = new StringBuilder("Could not compile the generated predictor:");
+			for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+				message.append('\n').append(diagnostic.getMessage(null));
+			throw new IllegalStateException(message.toString());
+		}
+		return classFile.toByteArray();
+	}
+	// --------------------------------------------------------------------
+}
@@ -0,0 +1,231 @@
+package algorithms;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// Instrumentation of the stages of a generation: time, calls and bytes allocated per stage, and the
+// nodes and rows evaluated. GP only calls the profiler when one is set, so a run without one pays a null
+// check per call site; setting and removing it is possible between generations. The times are those GP
+// measures for its stage timers (GP.beginStage/endStage), summed over the threads that bred offspring;
+// random trees are also part of variation. Allocation is measured per thread through the ThreadMXBean
+// where the JVM supports it; the profilers that measure it turn the JVM-wide setting on while they are
+// open, and close() restores it once the last of them is closed. At the end of every generation one JFR
+// event per stage and one for the generation are committed when JFR records them.
+public class Profiler implements AutoCloseable {
+
+	public static final int SELECTION = 0, VARIATION = 1, RANDOM_TREES = 2, EVALUATION = 3, REPLACEMENT = 4,
+			STAGES = 5;
+	protected static final String[] STAGE_NAMES = { "selection", "variation", "random trees", "evaluation",
+			"replacement" };
+
+	@Name("algorithms.Stage")
+	@Label("GP Stage")
+	@Category({ "GP" })
+	protected static class StageEvent extends Event {
+		@Label("Run")
+		protected int run;
+		@Label("Generation")
+		protected int generation;
+		@Label("Stage")
+		protected String stage;
+		@Label("Time")
+		@Timespan(Timespan.NANOSECONDS)
+		protected long time;
+		@Label("Allocated")
+		@DataAmount
+		protected long allocated;
+		@Label("Calls")
+		protected long calls;
+	}
+
+	@Name("algorithms.Generation")
+	@Label("GP Generation")
+	@Category({ "GP" })
+	protected static class GenerationEvent extends Event {
+		@Label("Run")
+		protected int run;
+		@Label("Generation")
+		protected int generation;
+		@Label("Training Error")
+		protected double trainingError;
+		@Label("Evaluated Nodes")
+		protected long evaluatedNodes;
+		@Label("Evaluated Rows")
+		protected long evaluatedRows;
+	}
+
+	protected final LongAdder[] times, allocations, calls;
+	protected final LongAdder evaluatedNodes, evaluatedRows;
+	protected final long[] totalTimes, totalAllocations, totalCalls;
+	protected long totalNodes, totalRows;
+	protected volatile com.sun.management.ThreadMXBean threadBean;	// null once closed
+	protected final boolean measuresAllocation;
+	protected final ThreadLocal<long[]> marks;	// per thread: allocated bytes at the beginning of every stage
+
+	public Profiler() {
+		this(true);
+	}
+
+	public Profiler(boolean measureAllocation) {
+		int stages = STAGE_NAMES.length;
+		times = new LongAdder[stages];
+		allocations = new LongAdder[stages];
+		calls = new LongAdder[stages];
+		for (int s = 0; s < stages; s++) {
+			times[s] = new LongAdder();
+			allocations[s] = new LongAdder();
+			calls[s] = new LongAdder();
+		}
+		evaluatedNodes = new LongAdder();
+		evaluatedRows = new LongAdder();
+		totalTimes = new long[stages];
+		totalAllocations = new long[stages];
+		totalCalls = new long[stages];
+		threadBean = measureAllocation ? allocationBean() : null;
+		measuresAllocation = threadBean != null;
+		marks = new ThreadLocal<long[]>() {
+			protected long[] initialValue() {
+				return new long[STAGE_NAMES.length];
+			}
+		};
+	}
+
+	protected static com.sun.management.ThreadMXBean allocationBean() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+			return null;
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		if (!bean.isThreadAllocatedMemorySupported())
+			return null;
+		synchronized (Profiler.class) {
+			allocationProfilers++;
+			if (!bean.isThreadAllocatedMemoryEnabled()) {
+				bean.setThreadAllocatedMemoryEnabled(true);
+				enabledAllocation = true;
+			}
+		}
+		return bean;
+	}
+
+	// open profilers that measure allocation, and whether one of them had to enable the measurement
+	protected static int allocationProfilers;
+	protected static boolean enabledAllocation;
+
+	// stops measuring allocation, and disables it in the JVM if the profilers enabled it and this was the
+	// last one measuring it; the other measures remain readable
+	public void close() {
+		com.sun.management.ThreadMXBean bean = threadBean;
+		if (bean == null)
+			return;
+		threadBean = null;
+		synchronized (Profiler.class) {
+			if (--allocationProfilers == 0 && enabledAllocation) {
+				bean.setThreadAllocatedMemoryEnabled(false);
+				enabledAllocation = false;
+			}
+		}
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Measurement
+	//
+	// begin and end of a stage on the current thread, which took the given time; different stages may be
+	// nested
+	public void begin(int stage) {
+		com.sun.management.ThreadMXBean bean = threadBean;
+		if (bean != null)
+			marks.get()[stage] = bean.getCurrentThreadAllocatedBytes();
+	}
+
+	public void end(int stage, long time) {
+		times[stage].add(time);
+		calls[stage].increment();
+		com.sun.management.ThreadMXBean bean = threadBean;
+		if (bean != null)
+			allocations[stage].add(bean.getCurrentThreadAllocatedBytes() - marks.get()[stage]);
+	}
+
+	// an evaluation of the given number of program nodes on every one of the given rows
+	public void countEvaluation(long nodes, long rows) {
+		evaluatedNodes.add(nodes * rows);
+		evaluatedRows.add(rows);
+	}
+
+	// adds the generation to the totals and commits its JFR events
+	public void endGeneration(int run, int generation, double trainingError) {
+		StageEvent stageEvent = new StageEvent();
+		boolean commit = stageEvent.isEnabled();
+		for (int s = 0; s < STAGE_NAMES.length; s++) {
+			long time = times[s].sumThenReset(), allocated = allocations[s].sumThenReset(),
+					count = calls[s].sumThenReset();
+			totalTimes[s] += time;
+			totalAllocations[s] += allocated;
+			totalCalls[s] += count;
+			if (commit) {
+				if (s > 0)
+					stageEvent = new StageEvent();
+				stageEvent.run = run;
+				stageEvent.generation = generation;
+				stageEvent.stage = STAGE_NAMES[s];
+				stageEvent.time = time;
+				stageEvent.allocated = allocated;
+				stageEvent.calls = count;
+				stageEvent.commit();
+			}
+		}
+		long nodes = evaluatedNodes.sumThenReset(), rows = evaluatedRows.sumThenReset();
+		totalNodes += nodes;
+		totalRows += rows;
+		GenerationEvent generationEvent = new GenerationEvent();
+		if (generationEvent.isEnabled()) {
+			generationEvent.run = run;
+			generationEvent.generation = generation;
+			generationEvent.trainingError = trainingError;
+			generationEvent.evaluatedNodes = nodes;
+			generationEvent.evaluatedRows = rows;
+			generationEvent.commit();
+		}
+	}
+	// --------------------------------------------------------------------
+
+	// totals over the completed generations
+	public long getTime(int stage) {
+		return totalTimes[stage];
+	}
+
+	// -1 when the JVM cannot measure allocation per thread
+	public long getAllocatedBytes(int stage) {
+		return measuresAllocation ? totalAllocations[stage] : -1;
+	}
+
+	public long getCalls(int stage) {
+		return totalCalls[stage];
+	}
+
+	public long getEvaluatedNodes() {
+		return totalNodes;
+	}
+
+	public long getEvaluatedRows() {
+		return totalRows;
+	}
+
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-14s %12s %12s %14s %16s\n", "Stage", "Time (ms)", "Calls", "ns/call",
+				"Allocated (MB)"));
+		for (int s = 0; s < STAGE_NAMES.length; s++)
+			report.append(String.format("%-14s %12.1f %12d %14.0f %16.1f\n", STAGE_NAMES[s], totalTimes[s] / 1e6,
+					totalCalls[s], totalCalls[s] == 0 ? 0.0 : (double) totalTimes[s] / totalCalls[s],
+					getAllocatedBytes(s) / 1048576.0));
+		report.append(String.format("Evaluated nodes: %d, rows: %d\n", totalNodes, totalRows));
+		return report.toString();
+	}
+}
@@ -0,0 +1,26 @@
+package algorithms;
+
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+// The random number generators of the runs. A run seeds one L64X128MixRandom and splits an independent
+// stream off it for every consumer (the initializer, every offspring, every tree of the random tree
+// pool) in a fixed order, so what a consumer draws does not depend on which thread runs it. Unlike
+// java.util.Random, the generators are not synchronized, so every stream belongs to one thread.
+public class RandomGenerators {
+
+	public static final String ALGORITHM = "L64X128MixRandom";
+
+	protected RandomGenerators() {
+	}
+
+	public static SplittableGenerator create(long seed) {
+		return (SplittableGenerator) RandomGeneratorFactory.<RandomGenerator>of(ALGORITHM).create(seed);
+	}
+
+	// a seed for runs created without one, drawn from a generator seeded by the JVM
+	public static long createSeed() {
+		return SplittableGenerator.of(ALGORITHM).nextLong();
+	}
+}
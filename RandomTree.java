@@ -0,0 +1,59 @@
+package algorithms;
+
+import main.Individual;
+import utils.Data;
+
+// A random tree used by the GSGP operators, together with its semantics. Trees drawn from a
+// RandomTreePool also carry their logistic-transformed semantics, so the operators do not recompute them.
+public class RandomTree {
+
+	protected Individual tree;
+	protected double[] trainingSemantics, unseenSemantics;
+	protected double[] logisticTrainingSemantics, logisticUnseenSemantics;
+
+	public RandomTree(Individual tree, Data data) {
+		this.tree = tree;
+		tree.evaluate(data);
+		trainingSemantics = tree.getTrainingOutputs();
+		unseenSemantics = tree.getUnseenOutputs();
+	}
+
+	public void computeLogisticSemantics(SemanticKernels kernels) {
+		logisticTrainingSemantics = new double[trainingSemantics.length];
+		logisticUnseenSemantics = new double[unseenSemantics.length];
+		kernels.logistic(trainingSemantics, 0, logisticTrainingSemantics, 0, trainingSemantics.length);
+		kernels.logistic(unseenSemantics, 0, logisticUnseenSemantics, 0, unseenSemantics.length);
+	}
+
+	public boolean hasLogisticSemantics() {
+		return logisticTrainingSemantics != null;
+	}
+
+	public Individual getTree() {
+		return tree;
+	}
+
+	public double[] getTrainingSemantics() {
+		return trainingSemantics;
+	}
+
+	public double[] getUnseenSemantics() {
+		return unseenSemantics;
+	}
+
+	public double[] getLogisticTrainingSemantics() {
+		return logisticTrainingSemantics;
+	}
+
+	public double[] getLogisticUnseenSemantics() {
+		return logisticUnseenSemantics;
+	}
+
+	public int getSize() {
+		return tree.getSize();
+	}
+
+	public int getDepth() {
+		return tree.getDepth();
+	}
+}
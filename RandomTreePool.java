@@ -0,0 +1,114 @@
+package algorithms;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+
+import utils.Data;
+
+// Pre-generated random trees for the GSGP operators. The semantics of every tree (raw and
+// logistic-transformed, on training and unseen data) are computed once, on the threads of the run, when
+// the tree enters the pool. Every refreshInterval generations a fraction of the pool is replaced by new trees. The
+// evaluations of the trees are counted by the profiler of the run, if it has one.
+public class RandomTreePool {
+
+	protected Initializer initializer;
+	protected Data data;
+	protected SemanticKernels kernels;
+	protected int maximumDepth, refreshInterval;
+	protected double refreshFraction;
+	protected RandomTree[] trees;
+	protected int generationsSinceRefresh;
+	protected Profiler profiler;
+
+	public RandomTreePool(Initializer initializer, Data data, SemanticKernels kernels, int size, int maximumDepth,
+			int refreshInterval, double refreshFraction, SplittableGenerator r, Profiler profiler, ForkJoinPool pool,
+			int threads) {
+		this.initializer = initializer;
+		this.profiler = profiler;
+		this.data = data;
+		this.kernels = kernels;
+		this.maximumDepth = maximumDepth;
+		this.refreshInterval = refreshInterval;
+		this.refreshFraction = refreshFraction;
+		trees = new RandomTree[size];
+		int[] indexes = new int[size];
+		for (int i = 0; i < size; i++)
+			indexes[i] = i;
+		fill(indexes, r, pool, threads);
+	}
+
+	public RandomTree draw(RandomGenerator random) {
+		return trees[random.nextInt(trees.length)];
+	}
+
+	// Called once per generation; with a refresh interval of 0 the pool is never refreshed. The trees to
+	// replace are distinct, drawn with a partial Fisher-Yates shuffle of the slots.
+	public void nextGeneration(SplittableGenerator r, ForkJoinPool pool, int threads) {
+		if (refreshInterval <= 0 || ++generationsSinceRefresh < refreshInterval)
+			return;
+		generationsSinceRefresh = 0;
+		int[] slots = new int[trees.length];
+		for (int i = 0; i < slots.length; i++)
+			slots[i] = i;
+		int[] indexes = new int[(int) Math.min(trees.length, Math.round(refreshFraction * trees.length))];
+		for (int i = 0; i < indexes.length; i++) {
+			int pick = i + r.nextInt(slots.length - i);
+			indexes[i] = slots[pick];
+			slots[pick] = slots[i];
+		}
+		fill(indexes, r, pool, threads);
+	}
+
+	// Every tree is grown from its own split generator, so the pool does not depend on the number of threads
+	// or the order of the work. The trees are split into one contiguous chunk per thread of the given pool;
+	// with a single thread they are grown on the calling one.
+	protected void fill(final int[] indexes, SplittableGenerator r, ForkJoinPool pool, int threads) {
+		final RandomGenerator[] generators = new RandomGenerator[indexes.length];
+		for (int i = 0; i < generators.length; i++)
+			generators[i] = r.split();
+		final RandomTree[] newTrees = new RandomTree[indexes.length];
+		if (threads > 1) {
+			ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[threads];
+			for (int t = 0; t < threads; t++) {
+				final int start = (int) ((long) indexes.length * t / threads);
+				final int end = (int) ((long) indexes.length * (t + 1) / threads);
+				tasks[t] = pool.submit(new Runnable() {
+					public void run() {
+						for (int i = start; i < end; i++)
+							newTrees[i] = growTree(generators[i]);
+					}
+				});
+			}
+			for (ForkJoinTask<?> task : tasks)
+				task.join();
+		} else
+			for (int i = 0; i < indexes.length; i++)
+				newTrees[i] = growTree(generators[i]);
+		for (int i = 0; i < indexes.length; i++) {
+			trees[indexes[i]] = newTrees[i];
+			if (profiler != null)
+				profiler.countEvaluation(newTrees[i].getSize(),
+						data.getTrainingData().length + data.getUnseenData().length);
+		}
+	}
+
+	protected RandomTree growTree(RandomGenerator random) {
+		RandomTree tree = new RandomTree(initializer.grow(maximumDepth, random), data);
+		tree.computeLogisticSemantics(kernels);
+		return tree;
+	}
+
+	public void setProfiler(Profiler profiler) {
+		this.profiler = profiler;
+	}
+
+	public int getSize() {
+		return trees.length;
+	}
+
+	public RandomTree getTree(int index) {
+		return trees[index];
+	}
+}
@@ -0,0 +1,16 @@
+package algorithms;
+
+import java.io.Serializable;
+import java.util.random.RandomGenerator;
+
+import main.Population;
+import utils.Data;
+
+// Parent selection strategy used by GP. prepare is called once per generation, before any parent of that
+// generation is selected; select may then be called concurrently and returns an index into the population.
+public interface Selection extends Serializable {
+
+	void prepare(Population population, Data data);
+
+	int select(RandomGenerator random);
+}
@@ -0,0 +1,104 @@
+package algorithms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+// Finds individuals whose training semantics are within a tolerance of a better individual's. Candidates
+// come from a locality-sensitive index: every table quantizes a random sample of rows on a grid with a
+// random offset and hashes the cells, so near-identical semantics share a bucket in at least one table with
+// high probability. Candidates are then compared on all rows, so there are no false positives; a pair
+// whose semantics straddle cell boundaries in every table is occasionally missed.
+public class SemanticDeduplication {
+
+	protected double tolerance;
+	protected int tables, sampledRows;
+	protected long duplicates;
+
+	public SemanticDeduplication(double tolerance) {
+		this(tolerance, 4, 16);
+	}
+
+	public SemanticDeduplication(double tolerance, int tables, int sampledRows) {
+		this.tolerance = tolerance;
+		this.tables = tables;
+		this.sampledRows = sampledRows;
+	}
+
+	// Semantics i are vectors[i] from offsets[i], on the given rows (or the first numberOfRows rows when rows
+	// is null). Individuals are visited in the given order, best first; an individual is a duplicate when it
+	// is within the tolerance of an earlier one on every row.
+	public boolean[] findDuplicates(double[][] vectors, int[] offsets, int[] rows, int numberOfRows,
+			int[] order, RandomGenerator random) {
+		// the cells are wide enough that a pair within the tolerance shares all sampled cells of a table with
+		// a probability of about 0.6
+		int sampleSize = Math.min(sampledRows, numberOfRows);
+		double width = Math.max(tolerance, Double.MIN_NORMAL) * 2 * sampleSize;
+		int[][] samples = new int[tables][sampleSize];
+		double[][] shifts = new double[tables][sampleSize];
+		for (int t = 0; t < tables; t++)
+			for (int s = 0; s < sampleSize; s++) {
+				int position = random.nextInt(numberOfRows);
+				samples[t][s] = rows == null ? position : rows[position];
+				shifts[t][s] = random.nextDouble() * width;
+			}
+
+		List<HashMap<Long, List<Integer>>> index = new ArrayList<HashMap<Long, List<Integer>>>();
+		for (int t = 0; t < tables; t++)
+			index.add(new HashMap<Long, List<Integer>>());
+		boolean[] duplicate = new boolean[vectors.length];
+		long[] keys = new long[tables];
+		for (int individual : order) {
+			for (int t = 0; t < tables; t++) {
+				long key = 17;
+				for (int s = 0; s < sampleSize; s++)
+					key = key * 31 + (long) Math.floor((vectors[individual][offsets[individual] + samples[t][s]]
+							+ shifts[t][s]) / width);
+				keys[t] = key;
+			}
+			search: for (int t = 0; t < tables; t++) {
+				List<Integer> bucket = index.get(t).get(keys[t]);
+				if (bucket == null)
+					continue;
+				for (int other : bucket)
+					if (isWithinTolerance(vectors, offsets, individual, other, rows, numberOfRows)) {
+						duplicate[individual] = true;
+						break search;
+					}
+			}
+			if (duplicate[individual]) {
+				duplicates++;
+				continue;
+			}
+			for (int t = 0; t < tables; t++) {
+				List<Integer> bucket = index.get(t).get(keys[t]);
+				if (bucket == null)
+					index.get(t).put(keys[t], bucket = new ArrayList<Integer>(1));
+				bucket.add(individual);
+			}
+		}
+		return duplicate;
+	}
+
+	protected boolean isWithinTolerance(double[][] vectors, int[] offsets, int a, int b, int[] rows,
+			int numberOfRows) {
+		double[] first = vectors[a], second = vectors[b];
+		int firstOffset = offsets[a], secondOffset = offsets[b];
+		for (int i = 0; i < numberOfRows; i++) {
+			int row = rows == null ? i : rows[i];
+			if (!(Math.abs(first[firstOffset + row] - second[secondOffset + row]) <= tolerance))
+				return false;
+		}
+		return true;
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	// duplicates found so far
+	public long getDuplicates() {
+		return duplicates;
+	}
+}
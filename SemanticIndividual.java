@@ -0,0 +1,33 @@
+package algorithms;
+
+import main.Individual;
+import utils.Data;
+
+// A semantics-only GSGP individual whose errors were accumulated while its semantics were built, so that
+// evaluate does not pass over the outputs again. Without known errors it evaluates like any individual.
+public class SemanticIndividual extends Individual {
+
+	private static final long serialVersionUID = 7L;
+
+	protected double trainingError, unseenError;
+	protected boolean evaluated;
+
+	public void setErrors(double trainingError, double unseenError) {
+		this.trainingError = trainingError;
+		this.unseenError = unseenError;
+		evaluated = true;
+	}
+
+	public void evaluate(Data data) {
+		if (!evaluated)
+			super.evaluate(data);
+	}
+
+	public double getTrainingError() {
+		return evaluated ? trainingError : super.getTrainingError();
+	}
+
+	public double getUnseenError() {
+		return evaluated ? unseenError : super.getUnseenError();
+	}
+}
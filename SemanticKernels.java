@@ -0,0 +1,128 @@
+package algorithms;
+
+import utils.Utils;
+
+// Row-wise arithmetic of the GSGP semantic operators. This class is the scalar implementation;
+// getDefault() returns the SIMD one (VectorSemanticKernels) when the jdk.incubator.vector module is
+// available and the platform has vectors of more than one double.
+public class SemanticKernels {
+
+	private static SemanticKernels defaultKernels;
+
+	public static synchronized SemanticKernels getDefault() {
+		if (defaultKernels == null) {
+			try {
+				SemanticKernels vectorKernels = (SemanticKernels) Class.forName("algorithms.VectorSemanticKernels")
+						.getDeclaredConstructor().newInstance();
+				if (vectorKernels.isAccelerated())
+					defaultKernels = vectorKernels;
+			} catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+				// jdk.incubator.vector is not part of the module graph, or has no species for this
+				// platform: keep the scalar implementation
+			}
+			if (defaultKernels == null)
+				defaultKernels = new SemanticKernels();
+		}
+		return defaultKernels;
+	}
+
+	public boolean isAccelerated() {
+		return false;
+	}
+
+	// offspring = parent1 * logistic(randomTree) + (1 - logistic(randomTree)) * parent2
+	public void buildCrossoverSemantics(double[] parent1, int parent1Offset, double[] parent2, int parent2Offset,
+			double[] randomTree, int randomTreeOffset, double[] offspring, int offspringOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			double randomTreeValue = Utils.logisticFunction(randomTree[randomTreeOffset + i]);
+			offspring[offspringOffset + i] = (parent1[parent1Offset + i] * randomTreeValue)
+					+ ((1.0 - randomTreeValue) * parent2[parent2Offset + i]);
+		}
+	}
+
+	// offspring = parent1 * weight + (1 - weight) * parent2, for weights that are already logistic-transformed
+	public void blendSemantics(double[] parent1, int parent1Offset, double[] parent2, int parent2Offset,
+			double[] weights, int weightsOffset, double[] offspring, int offspringOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			double weight = weights[weightsOffset + i];
+			offspring[offspringOffset + i] = (parent1[parent1Offset + i] * weight)
+					+ ((1.0 - weight) * parent2[parent2Offset + i]);
+		}
+	}
+
+	// offspring = parent + mutationStep * (randomTree1 - randomTree2), with both random trees passed through
+	// the logistic function when the mutation is bounded
+	public void buildMutationSemantics(double[] parent, int parentOffset, double[] randomTree1,
+			int randomTree1Offset, double[] randomTree2, int randomTree2Offset, double[] offspring,
+			int offspringOffset, int length, double mutationStep, boolean boundMutation) {
+		for (int i = 0; i < length; i++) {
+			double value1 = randomTree1[randomTree1Offset + i];
+			double value2 = randomTree2[randomTree2Offset + i];
+			if (boundMutation) {
+				value1 = Utils.logisticFunction(value1);
+				value2 = Utils.logisticFunction(value2);
+			}
+			offspring[offspringOffset + i] = parent[parentOffset + i] + (mutationStep * (value1 - value2));
+		}
+	}
+
+	// The fused variants below build the same semantics while accumulating the squared error against the
+	// targets, in the same order as a separate pass would, and return the sum. With a null offspring array
+	// only the error is computed and nothing is written.
+	public double buildCrossoverSemantics(double[] parent1, int parent1Offset, double[] parent2, int parent2Offset,
+			double[] randomTree, int randomTreeOffset, double[] offspring, int offspringOffset, double[] targets,
+			int targetsOffset, int length) {
+		double sum = 0.0;
+		for (int i = 0; i < length; i++) {
+			double randomTreeValue = Utils.logisticFunction(randomTree[randomTreeOffset + i]);
+			double value = (parent1[parent1Offset + i] * randomTreeValue)
+					+ ((1.0 - randomTreeValue) * parent2[parent2Offset + i]);
+			if (offspring != null)
+				offspring[offspringOffset + i] = value;
+			double error = value - targets[targetsOffset + i];
+			sum += error * error;
+		}
+		return sum;
+	}
+
+	public double blendSemantics(double[] parent1, int parent1Offset, double[] parent2, int parent2Offset,
+			double[] weights, int weightsOffset, double[] offspring, int offspringOffset, double[] targets,
+			int targetsOffset, int length) {
+		double sum = 0.0;
+		for (int i = 0; i < length; i++) {
+			double weight = weights[weightsOffset + i];
+			double value = (parent1[parent1Offset + i] * weight) + ((1.0 - weight) * parent2[parent2Offset + i]);
+			if (offspring != null)
+				offspring[offspringOffset + i] = value;
+			double error = value - targets[targetsOffset + i];
+			sum += error * error;
+		}
+		return sum;
+	}
+
+	public double buildMutationSemantics(double[] parent, int parentOffset, double[] randomTree1,
+			int randomTree1Offset, double[] randomTree2, int randomTree2Offset, double[] offspring,
+			int offspringOffset, double[] targets, int targetsOffset, int length, double mutationStep,
+			boolean boundMutation) {
+		double sum = 0.0;
+		for (int i = 0; i < length; i++) {
+			double value1 = randomTree1[randomTree1Offset + i];
+			double value2 = randomTree2[randomTree2Offset + i];
+			if (boundMutation) {
+				value1 = Utils.logisticFunction(value1);
+				value2 = Utils.logisticFunction(value2);
+			}
+			double value = parent[parentOffset + i] + (mutationStep * (value1 - value2));
+			if (offspring != null)
+				offspring[offspringOffset + i] = value;
+			double error = value - targets[targetsOffset + i];
+			sum += error * error;
+		}
+		return sum;
+	}
+
+	public void logistic(double[] values, int valuesOffset, double[] results, int resultsOffset, int length) {
+		for (int i = 0; i < length; i++)
+			results[resultsOffset + i] = Utils.logisticFunction(values[valuesOffset + i]);
+	}
+}
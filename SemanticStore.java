@@ -0,0 +1,163 @@
+package algorithms;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import main.Individual;
+import main.Population;
+import utils.Data;
+
+// Pooled storage for the semantics of GSGP offspring. Two pairs of contiguous buffers (training and
+// unseen) alternate between generations: the parents are read from the buffers of the current
+// generation while the offspring are written into the slots of the next one. Offspring only keep their
+// slot index (see StoredIndividual), so no double[] is allocated per offspring.
+public class SemanticStore {
+
+	protected int trainingLength, unseenLength;
+	protected double[] trainingTargets, unseenTargets;
+	protected double[][] trainingBuffers, unseenBuffers;
+	protected int[] capacities;
+	protected long generation;
+	protected AtomicInteger allocatedSlots;
+
+	public SemanticStore(Data data, int capacity) {
+		trainingTargets = extractTargets(data.getTrainingData());
+		unseenTargets = extractTargets(data.getUnseenData());
+		trainingLength = trainingTargets.length;
+		unseenLength = unseenTargets.length;
+		trainingBuffers = new double[2][];
+		unseenBuffers = new double[2][];
+		capacities = new int[2];
+		allocatedSlots = new AtomicInteger();
+		ensureCapacity(0, capacity);
+		ensureCapacity(1, capacity);
+	}
+
+	protected static double[] extractTargets(double[][] rows) {
+		double[] targets = new double[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			targets[i] = rows[i][rows[i].length - 1];
+		return targets;
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Slots
+	//
+	// reserves a slot of the next generation; safe to call concurrently while breeding
+	public StoredIndividual allocate() {
+		int slot = allocatedSlots.getAndIncrement();
+		if (slot >= capacities[bufferOf(generation + 1)])
+			throw new IllegalStateException("Semantic store is full: " + slot + " slots allocated");
+		return new StoredIndividual(this, generation + 1, slot);
+	}
+
+	// Called once the next population is known. Individuals of the current generation that survive
+	// (the elite parent, parents reused in place of discarded offspring) are copied into unused slots of
+	// the next generation, and the buffers of the current generation are released for reuse.
+	public void nextGeneration(Population population) {
+		long next = generation + 1;
+		int nextBuffer = bufferOf(next);
+		boolean[] used = new boolean[capacities[nextBuffer]];
+		IdentityHashMap<StoredIndividual, Boolean> survivors = new IdentityHashMap<StoredIndividual, Boolean>();
+		int usedCount = 0;
+		for (int i = 0; i < population.getSize(); i++) {
+			Individual individual = population.getIndividual(i);
+			if (!(individual instanceof StoredIndividual))
+				continue;
+			StoredIndividual stored = (StoredIndividual) individual;
+			if (stored.generation == next) {
+				if (!used[stored.slot]) {
+					used[stored.slot] = true;
+					usedCount++;
+				}
+			} else
+				survivors.put(stored, Boolean.TRUE);
+		}
+
+		if (usedCount + survivors.size() > capacities[nextBuffer]) {
+			ensureCapacity(nextBuffer, usedCount + survivors.size());
+			boolean[] grown = new boolean[capacities[nextBuffer]];
+			System.arraycopy(used, 0, grown, 0, used.length);
+			used = grown;
+		}
+
+		int freeSlot = 0;
+		for (StoredIndividual survivor : survivors.keySet()) {
+			while (used[freeSlot])
+				freeSlot++;
+			used[freeSlot] = true;
+			System.arraycopy(survivor.getTrainingBuffer(), survivor.getTrainingOffset(), trainingBuffers[nextBuffer],
+					freeSlot * trainingLength, trainingLength);
+			System.arraycopy(survivor.getUnseenBuffer(), survivor.getUnseenOffset(), unseenBuffers[nextBuffer],
+					freeSlot * unseenLength, unseenLength);
+			survivor.generation = next;
+			survivor.slot = freeSlot;
+		}
+
+		generation = next;
+		allocatedSlots.set(0);
+		ensureCapacity(bufferOf(generation + 1), population.getSize());
+	}
+
+	protected void ensureCapacity(int buffer, int capacity) {
+		if (trainingBuffers[buffer] != null && capacities[buffer] >= capacity)
+			return;
+		// grow with some headroom, since the population may grow by one individual per generation
+		int newCapacity = Math.max(capacity, capacities[buffer] + (capacities[buffer] >> 3) + 1);
+		double[] training = new double[newCapacity * trainingLength];
+		double[] unseen = new double[newCapacity * unseenLength];
+		if (trainingBuffers[buffer] != null) {
+			System.arraycopy(trainingBuffers[buffer], 0, training, 0, trainingBuffers[buffer].length);
+			System.arraycopy(unseenBuffers[buffer], 0, unseen, 0, unseenBuffers[buffer].length);
+		}
+		trainingBuffers[buffer] = training;
+		unseenBuffers[buffer] = unseen;
+		capacities[buffer] = newCapacity;
+	}
+
+	protected static int bufferOf(long generation) {
+		return (int) (generation & 1);
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Errors
+	//
+	public double calculateTrainingRMSE(StoredIndividual individual) {
+		return calculateRMSE(individual.getTrainingBuffer(), individual.getTrainingOffset(), trainingTargets);
+	}
+
+	public double calculateUnseenRMSE(StoredIndividual individual) {
+		return calculateRMSE(individual.getUnseenBuffer(), individual.getUnseenOffset(), unseenTargets);
+	}
+
+	protected static double calculateRMSE(double[] outputs, int offset, double[] targets) {
+		double sum = 0.0;
+		for (int i = 0; i < targets.length; i++) {
+			double error = outputs[offset + i] - targets[i];
+			sum += error * error;
+		}
+		return Math.sqrt(sum / targets.length);
+	}
+	// --------------------------------------------------------------------
+
+	public double[] getTrainingBuffer(long generation) {
+		return trainingBuffers[bufferOf(generation)];
+	}
+
+	public double[] getUnseenBuffer(long generation) {
+		return unseenBuffers[bufferOf(generation)];
+	}
+
+	public int getTrainingLength() {
+		return trainingLength;
+	}
+
+	public int getUnseenLength() {
+		return unseenLength;
+	}
+
+	public long getGeneration() {
+		return generation;
+	}
+}
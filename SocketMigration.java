@@ -0,0 +1,333 @@
+package algorithms;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Migration between islands running in separate processes on the same host. Every island listens on its
+// own address, either a Unix domain socket or a loopback TCP port, and keeps one connection to each island
+// it sends to. Packets are framed as source, generation, length and data; the packet of a finished island
+// has a length of -1. The islands can be started in any order: connecting is retried until the destination
+// listens or the connect timeout expires. A connection closed by its island before that island finished
+// (the process crashed, or closed the migration without finishing) fails the receiving island. A finished
+// island also writes its finish packet back on the connection of every island that sends to it, so the
+// senders stop sending; a write that fails because the destination closed after finishing is ignored.
+//
+// Each process runs one island, e.g. for island i of n:
+//   SocketMigration migration = new SocketMigration(MigrationTopology.ring(n), i, 10, 5,
+//           SocketMigration.unixAddresses(new File("/tmp/islands"), n));
+//   gp.setMigration(migration);
+public class SocketMigration extends Migration {
+
+	protected SocketAddress[] addresses;
+	protected ServerSocketChannel server;
+	protected DataOutputStream[] connections;
+	protected DataOutputStream[] replies;	// the connections of the sources, written back on when finishing
+	protected Thread[] replyReaders;
+	protected boolean[] finishedDestinations;	// set by the reply readers
+	protected List<SocketChannel> channels;
+	protected BlockingQueue<Packet> inbox;
+	protected volatile IOException failure;
+	protected long connectTimeout;
+
+	public SocketMigration(MigrationTopology topology, int island, int interval, int size,
+			SocketAddress[] addresses) throws IOException {
+		super(topology, island, interval, size);
+		this.addresses = addresses;
+		connections = new DataOutputStream[addresses.length];
+		replies = new DataOutputStream[addresses.length];
+		replyReaders = new Thread[addresses.length];
+		finishedDestinations = new boolean[addresses.length];
+		channels = new ArrayList<SocketChannel>();
+		inbox = new LinkedBlockingQueue<Packet>();
+		connectTimeout = 60000;
+
+		SocketAddress address = addresses[island];
+		if (address instanceof UnixDomainSocketAddress) {
+			Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+			server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		} else
+			server = ServerSocketChannel.open();
+		server.bind(address);
+		startDaemon("island-" + island + "-accept", new Runnable() {
+			public void run() {
+				accept();
+			}
+		});
+	}
+
+	// one socket file per island in the directory
+	public static SocketAddress[] unixAddresses(File directory, int islands) {
+		SocketAddress[] addresses = new SocketAddress[islands];
+		for (int i = 0; i < islands; i++)
+			addresses[i] = UnixDomainSocketAddress.of(new File(directory, "island-" + i + ".sock").toPath());
+		return addresses;
+	}
+
+	// consecutive loopback ports starting at the given one
+	public static SocketAddress[] loopbackAddresses(int firstPort, int islands) {
+		SocketAddress[] addresses = new SocketAddress[islands];
+		for (int i = 0; i < islands; i++)
+			addresses[i] = new InetSocketAddress(InetAddress.getLoopbackAddress(), firstPort + i);
+		return addresses;
+	}
+
+	public void setConnectTimeout(long milliseconds) {
+		connectTimeout = milliseconds;
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Receiving
+	//
+	protected void accept() {
+		try {
+			while (true) {
+				final SocketChannel channel = server.accept();
+				synchronized (channels) {
+					channels.add(channel);
+				}
+				startDaemon("island-" + island + "-receive", new Runnable() {
+					public void run() {
+						receive(channel);
+					}
+				});
+			}
+		} catch (IOException e) {
+			// the server was closed
+		}
+	}
+
+	protected void receive(SocketChannel channel) {
+		int source = -1;
+		boolean sourceFinished = false;
+		try {
+			DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream(channel)));
+			while (true) {
+				int packetSource = input.readInt();
+				if (source < 0)
+					registerSource(packetSource, channel);
+				source = packetSource;
+				int generation = input.readInt();
+				int length = input.readInt();
+				byte[] data = null;
+				if (length >= 0) {
+					data = new byte[length];
+					input.readFully(data);
+				} else
+					sourceFinished = true;
+				inbox.add(new Packet(source, generation, data));
+			}
+		} catch (EOFException e) {
+			if (!sourceFinished && server.isOpen())
+				fail(new IOException("Island " + source + " closed its connection before it finished", e));
+		} catch (IOException e) {
+			if (server.isOpen())
+				fail(e);
+		}
+	}
+
+	// a source that connects after this island finished gets the finish packet right away
+	protected synchronized void registerSource(int source, SocketChannel channel) {
+		replies[source] = new DataOutputStream(new BufferedOutputStream(outputStream(channel)));
+		if (finished)
+			notifySource(source);
+	}
+
+	// the source may have closed its connection already, in which case it needs no notice
+	protected synchronized void notifySource(int source) {
+		if (replies[source] == null)
+			return;
+		try {
+			writePacket(replies[source], -1, null);
+		} catch (IOException e) {
+			// the source is gone
+		}
+	}
+
+	// reads the finish packet a destination writes back on the connection of this island
+	protected void readReplies(final int destination, final SocketChannel channel) {
+		replyReaders[destination] = startDaemon("island-" + island + "-replies-" + destination, new Runnable() {
+			public void run() {
+				try {
+					DataInputStream input = new DataInputStream(inputStream(channel));
+					int source = input.readInt();
+					int generation = input.readInt();
+					input.readInt();	// always -1
+					finishedDestinations[destination] = true;
+					inbox.add(new Packet(source, generation, null));
+				} catch (IOException e) {
+					// the connection was closed without a notice; a failed send reports it
+				}
+			}
+		});
+	}
+
+	protected Packet poll() throws IOException {
+		return checkFailure(inbox.poll());
+	}
+
+	protected void fail(IOException e) {
+		failure = e;
+		inbox.add(new Packet(-1, -1, null));
+	}
+
+	protected Packet take() throws IOException {
+		Packet packet;
+		try {
+			packet = inbox.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Island " + island + " was interrupted while waiting for immigrants");
+		}
+		return checkFailure(packet);
+	}
+
+	protected Packet checkFailure(Packet packet) throws IOException {
+		if (packet != null && packet.source < 0)
+			throw new IOException("Connection to island " + island + " failed", failure);
+		return packet;
+	}
+	// --------------------------------------------------------------------
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Sending
+	//
+	protected void send(int destination, int generation, byte[] data) throws IOException {
+		DataOutputStream output = connections[destination];
+		if (output == null)
+			output = connections[destination] = connect(destination);
+		try {
+			writePacket(output, generation, data);
+		} catch (IOException e) {
+			if (!hasFinished(destination))
+				throw e;
+		}
+	}
+
+	// whether the destination wrote its finish packet back before its connection closed
+	protected boolean hasFinished(int destination) {
+		Thread reader = replyReaders[destination];
+		try {
+			reader.join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return !reader.isAlive() && finishedDestinations[destination];
+	}
+
+	protected void writePacket(DataOutputStream output, int generation, byte[] data) throws IOException {
+		output.writeInt(island);
+		output.writeInt(generation);
+		if (data == null)
+			output.writeInt(-1);
+		else {
+			output.writeInt(data.length);
+			output.write(data);
+		}
+		output.flush();
+	}
+
+	protected DataOutputStream connect(int destination) throws IOException {
+		SocketAddress address = addresses[destination];
+		long deadline = System.currentTimeMillis() + connectTimeout;
+		while (true) {
+			SocketChannel channel = address instanceof UnixDomainSocketAddress
+					? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+			try {
+				channel.connect(address);
+				synchronized (channels) {
+					channels.add(channel);
+				}
+				readReplies(destination, channel);
+				return new DataOutputStream(new BufferedOutputStream(outputStream(channel), 1 << 16));
+			} catch (IOException e) {
+				channel.close();
+				if (System.currentTimeMillis() > deadline)
+					throw new IOException("Island " + destination + " is not listening on " + address, e);
+			}
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while connecting to island " + destination);
+			}
+		}
+	}
+	// --------------------------------------------------------------------
+
+	// finishes the island first, so its destinations see a regular end of its connections
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			closeChannels();
+		}
+	}
+
+	protected void closeChannels() throws IOException {
+		server.close();
+		synchronized (channels) {
+			for (SocketChannel channel : channels)
+				channel.close();
+		}
+		if (addresses[island] instanceof UnixDomainSocketAddress)
+			Files.deleteIfExists(((UnixDomainSocketAddress) addresses[island]).getPath());
+	}
+
+	// Streams over the channel itself: those of java.nio.channels.Channels share the blocking lock of the
+	// channel, so a reader waiting for a reply would block the writes on the same connection.
+	protected static InputStream inputStream(final SocketChannel channel) {
+		return new InputStream() {
+			public int read() throws IOException {
+				byte[] value = new byte[1];
+				return read(value, 0, 1) < 0 ? -1 : value[0] & 0xff;
+			}
+
+			public int read(byte[] bytes, int offset, int length) throws IOException {
+				return length == 0 ? 0 : channel.read(ByteBuffer.wrap(bytes, offset, length));
+			}
+		};
+	}
+
+	protected static OutputStream outputStream(final SocketChannel channel) {
+		return new OutputStream() {
+			public void write(int value) throws IOException {
+				write(new byte[] { (byte) value }, 0, 1);
+			}
+
+			public void write(byte[] bytes, int offset, int length) throws IOException {
+				ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+				while (buffer.hasRemaining())
+					channel.write(buffer);
+			}
+		};
+	}
+
+	protected static Thread startDaemon(String name, Runnable runnable) {
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+}
@@ -0,0 +1,111 @@
+package algorithms;
+
+// The usual stopping criteria; any number of them can be added to a run, which stops at the first one met
+public class StoppingCriteria {
+
+	protected StoppingCriteria() {
+	}
+
+	// the training error of the best individual has not improved by more than minimumImprovement (relative)
+	// over the last generations
+	public static StoppingCriterion stagnation(final int generations, final double minimumImprovement) {
+		return new StoppingCriterion() {
+			protected double reference;
+			protected int stalled;
+
+			public void start(GP gp) {
+				reference = gp.getCurrentBest().getTrainingError();
+				stalled = 0;
+			}
+
+			public boolean isMet(GP gp) {
+				double error = gp.getCurrentBest().getTrainingError();
+				if (error < reference * (1.0 - minimumImprovement)) {
+					reference = error;
+					stalled = 0;
+				} else
+					stalled++;
+				return stalled >= generations;
+			}
+
+			public String toString() {
+				return "stagnation for " + generations + " generations";
+			}
+		};
+	}
+
+	// the overfitting measure of GP (how far the unseen error of the best individual has moved away from its
+	// training error since the best unseen error) has stayed above the threshold for the last generations
+	public static StoppingCriterion overfitting(final double threshold, final int generations) {
+		return new StoppingCriterion() {
+			protected int overfitted;
+
+			public void start(GP gp) {
+				overfitted = 0;
+			}
+
+			public boolean isMet(GP gp) {
+				if (gp.getOverfitting() > threshold)
+					overfitted++;
+				else
+					overfitted = 0;
+				return overfitted >= generations;
+			}
+
+			public String toString() {
+				return "overfitting above " + threshold + " for " + generations + " generations";
+			}
+		};
+	}
+
+	// wall-clock time of the search call
+	public static StoppingCriterion timeLimit(final long milliseconds) {
+		return new StoppingCriterion() {
+			protected long end;
+
+			public void start(GP gp) {
+				end = System.nanoTime() + milliseconds * 1000000L;
+			}
+
+			public boolean isMet(GP gp) {
+				return System.nanoTime() - end >= 0;
+			}
+
+			public String toString() {
+				return "time limit of " + milliseconds + " ms";
+			}
+		};
+	}
+
+	// individuals evaluated over the whole run, including the initial population
+	public static StoppingCriterion evaluationLimit(final long evaluations) {
+		return new StoppingCriterion() {
+			public void start(GP gp) {
+			}
+
+			public boolean isMet(GP gp) {
+				return gp.getEvaluations() >= evaluations;
+			}
+
+			public String toString() {
+				return "limit of " + evaluations + " evaluations";
+			}
+		};
+	}
+
+	// training error of the best individual
+	public static StoppingCriterion targetError(final double error) {
+		return new StoppingCriterion() {
+			public void start(GP gp) {
+			}
+
+			public boolean isMet(GP gp) {
+				return gp.getCurrentBest().getTrainingError() <= error;
+			}
+
+			public String toString() {
+				return "target error of " + error;
+			}
+		};
+	}
+}
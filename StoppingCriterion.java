@@ -0,0 +1,10 @@
+package algorithms;
+
+// Condition under which GP.search stops before the requested number of generations. start is called at
+// the beginning of every search call, isMet after every generation (once its values have been recorded).
+public interface StoppingCriterion {
+
+	void start(GP gp);
+
+	boolean isMet(GP gp);
+}
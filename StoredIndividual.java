@@ -0,0 +1,58 @@
+package algorithms;
+
+import utils.Data;
+
+// A semantics-only GSGP individual whose outputs live in a slot of a SemanticStore
+public class StoredIndividual extends SemanticIndividual {
+
+	private static final long serialVersionUID = 7L;
+
+	protected transient SemanticStore store;
+	protected long generation;
+	protected int slot;
+
+	public StoredIndividual(SemanticStore store, long generation, int slot) {
+		this.store = store;
+		this.generation = generation;
+		this.slot = slot;
+	}
+
+	// the errors are normally set while the slot is written; otherwise they are computed from the slot
+	public void evaluate(Data data) {
+		if (!evaluated)
+			setErrors(store.calculateTrainingRMSE(this), store.calculateUnseenRMSE(this));
+	}
+
+	// the store is the owner of the outputs; these return copies of the slot
+	public double[] getTrainingOutputs() {
+		double[] outputs = new double[store.getTrainingLength()];
+		System.arraycopy(getTrainingBuffer(), getTrainingOffset(), outputs, 0, outputs.length);
+		return outputs;
+	}
+
+	public double[] getUnseenOutputs() {
+		double[] outputs = new double[store.getUnseenLength()];
+		System.arraycopy(getUnseenBuffer(), getUnseenOffset(), outputs, 0, outputs.length);
+		return outputs;
+	}
+
+	public double[] getTrainingBuffer() {
+		return store.getTrainingBuffer(generation);
+	}
+
+	public int getTrainingOffset() {
+		return slot * store.getTrainingLength();
+	}
+
+	public double[] getUnseenBuffer() {
+		return store.getUnseenBuffer(generation);
+	}
+
+	public int getUnseenOffset() {
+		return slot * store.getUnseenLength();
+	}
+
+	public int getSlot() {
+		return slot;
+	}
+}
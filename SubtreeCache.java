@@ -0,0 +1,342 @@
+package algorithms;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import programElements.Constant;
+import programElements.InputVariable;
+import programElements.Operator;
+import programElements.ProgramElement;
+import utils.Data;
+import utils.Utils;
+
+// Hash-consed cache of subtree outputs for standard GP. Every distinct subtree gets an id from its
+// opcode and the ids of its arguments, so structurally equal subtrees of different individuals share one
+// entry holding their training and unseen outputs. Offspring of crossover and mutation are mostly made of
+// subtrees of their parents, so evaluating them only computes the nodes between the splice point and the
+// root. Entries are evicted least recently used first once the memory budget is used up; every entry
+// holds one output per row, so the budget translates into a number of entries.
+//
+// A subtree only gets an entry the second time it is computed: a fingerprint of every computed subtree is
+// kept in a small open-addressing table (cleared when half full), so the subtrees of individuals that never
+// become parents do not take entries. The outputs of the terminals are computed once, and lookups use a
+// probe key, so evaluating a program only allocates the outputs it computes and the entries it adds.
+public class SubtreeCache {
+
+	protected static class Key {
+		protected int opcode;
+		protected int[] arguments;
+		protected int hash;
+
+		protected Key(int opcode, int[] arguments) {
+			set(opcode, arguments);
+		}
+
+		protected void set(int opcode, int[] arguments) {
+			this.opcode = opcode;
+			this.arguments = arguments;
+			hash = 31 * opcode + Arrays.hashCode(arguments);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object other) {
+			Key key = (Key) other;
+			return opcode == key.opcode && Arrays.equals(arguments, key.arguments);
+		}
+	}
+
+	protected static class Entry {
+		protected final int id;
+		protected double[] trainingOutputs, unseenOutputs;
+
+		protected Entry(int id) {
+			this.id = id;
+		}
+	}
+
+	protected static final int CONSTANT = 0, INPUT = 1, ADD = 2, SUB = 3, MUL = 4, DIV = 5, LOGISTIC = 6,
+			GENERIC = 7;
+	protected static final int UNKNOWN = Integer.MIN_VALUE;	// id of a subtree without an entry
+
+	protected double[][] trainingData, unseenData;
+	protected int[] kinds, arities, inputIndexes;
+	protected double[] constants;
+	protected Operator[] operators;
+	protected int maximumEntries, nextId;
+	protected LinkedHashMap<Key, Entry> entries;
+	protected long hits, misses;
+	protected double[][] terminalTraining, terminalUnseen;	// per opcode, null for operators
+	protected Key probe;
+	protected int[][] probeArguments;	// per arity
+	protected long[] computedSubtrees;	// fingerprints of the subtrees computed once, 0 for an empty slot
+	protected int computedCount;
+
+	public SubtreeCache(Data data, Initializer initializer, long maximumBytes) {
+		trainingData = data.getTrainingData();
+		unseenData = data.getUnseenData();
+		long entryBytes = 8L * (trainingData.length + unseenData.length) + 64;
+		maximumEntries = (int) Math.max(1, Math.min(Integer.MAX_VALUE - 1, maximumBytes / entryBytes));
+
+		ProgramElement[] elements = initializer.getElementTable();
+		arities = initializer.getArityTable();
+		kinds = new int[elements.length];
+		inputIndexes = new int[elements.length];
+		constants = new double[elements.length];
+		operators = new Operator[elements.length];
+		terminalTraining = new double[elements.length][];
+		terminalUnseen = new double[elements.length][];
+		int maximumArity = 0;
+		for (int i = 0; i < elements.length; i++) {
+			if (elements[i] instanceof Constant) {
+				kinds[i] = CONSTANT;
+				constants[i] = ((Constant) elements[i]).getValue();
+			} else if (elements[i] instanceof InputVariable) {
+				kinds[i] = INPUT;
+				inputIndexes[i] = ((InputVariable) elements[i]).getIndex();
+			} else {
+				operators[i] = (Operator) elements[i];
+				kinds[i] = CompiledProgram.opcodeOf(operators[i]);
+				maximumArity = Math.max(maximumArity, arities[i]);
+				continue;
+			}
+			terminalTraining[i] = evaluateTerminal(i, trainingData);
+			terminalUnseen[i] = evaluateTerminal(i, unseenData);
+		}
+		probe = new Key(0, new int[0]);
+		probeArguments = new int[maximumArity + 1][];
+		for (int arity = 0; arity <= maximumArity; arity++)
+			probeArguments[arity] = new int[arity];
+		computedSubtrees = new long[Integer.highestOneBit((int) Math.min(1 << 21, 4L * maximumEntries)) * 2];
+
+		entries = new LinkedHashMap<Key, Entry>(1024, 0.75f, true) {
+			private static final long serialVersionUID = 7L;
+
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return size() > maximumEntries;
+			}
+		};
+	}
+
+	// ++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++++
+	// Evaluation
+	//
+	// returns the training and unseen outputs of the program; safe to call concurrently
+	public double[][] evaluate(LinearProgram program) {
+		int size = program.getSize();
+		int[] ids = new int[size];
+		long[] fingerprints = new long[size];
+		double[][] cachedTraining = new double[size][], cachedUnseen = new double[size][];
+
+		// ids bottom-up; terminals are identified by their opcode alone, and a subtree with an argument
+		// without an entry has none either
+		synchronized (this) {
+			for (int i = size - 1; i >= 0; i--) {
+				int opcode = program.getOpcode(i);
+				int arity = arities[opcode];
+				fingerprints[i] = fingerprint(opcode, program, fingerprints, i);
+				if (arity == 0) {
+					ids[i] = -1 - opcode;
+					continue;
+				}
+				Entry entry = lookUp(opcode, program, ids, i);
+				ids[i] = entry == null ? UNKNOWN : entry.id;
+				if (entry != null) {
+					cachedTraining[i] = entry.trainingOutputs;
+					cachedUnseen[i] = entry.unseenOutputs;
+				}
+			}
+		}
+
+		// top-down: the arguments of a node only have to be computed when the node itself is not cached
+		boolean[] needed = new boolean[size];
+		needed[0] = true;
+		long reused = 0, computed = 0;
+		for (int i = 0; i < size; i++) {
+			if (!needed[i] || arities[program.getOpcode(i)] == 0)
+				continue;
+			if (cachedTraining[i] != null) {
+				reused++;
+				continue;
+			}
+			computed++;
+			for (int a = 0, child = i + 1; a < arities[program.getOpcode(i)]; a++, child = program.getSubtreeEnd(child))
+				needed[child] = true;
+		}
+
+		// bottom-up over the needed nodes, with the first argument of every operator on top of the stack
+		double[][] trainingStack = new double[size][], unseenStack = new double[size][];
+		int top = -1;
+		for (int i = size - 1; i >= 0; i--) {
+			if (!needed[i])
+				continue;
+			int opcode = program.getOpcode(i);
+			int arity = arities[opcode];
+			if (arity == 0) {
+				top++;
+				trainingStack[top] = terminalTraining[opcode];
+				unseenStack[top] = terminalUnseen[opcode];
+			} else if (cachedTraining[i] != null) {
+				top++;
+				trainingStack[top] = cachedTraining[i];
+				unseenStack[top] = cachedUnseen[i];
+			} else {
+				double[] training = evaluateOperator(opcode, trainingStack, top, trainingData.length);
+				double[] unseen = evaluateOperator(opcode, unseenStack, top, unseenData.length);
+				top -= arity - 1;
+				trainingStack[top] = training;
+				unseenStack[top] = unseen;
+				cachedTraining[i] = training;
+				cachedUnseen[i] = unseen;
+			}
+		}
+
+		// bottom-up, so that the arguments of a subtree get their entries before it
+		synchronized (this) {
+			for (int i = size - 1; i >= 0; i--) {
+				int opcode = program.getOpcode(i);
+				if (!needed[i] || arities[opcode] == 0 || ids[i] != UNKNOWN)
+					continue;
+				if (!markComputed(fingerprints[i]))
+					continue;	// computed for the first time
+				Entry entry = lookUp(opcode, program, ids, i);
+				if (entry == null && !hasUnknownArgument(opcode, program, ids, i)) {
+					entry = new Entry(nextId++);
+					entry.trainingOutputs = cachedTraining[i];
+					entry.unseenOutputs = cachedUnseen[i];
+					entries.put(new Key(opcode, probe.arguments.clone()), entry);
+				}
+				if (entry != null)
+					ids[i] = entry.id;
+			}
+			hits += reused;
+			misses += computed;
+		}
+		// cached vectors are shared between individuals, so the caller gets its own copies
+		return new double[][] { trainingStack[0].clone(), unseenStack[0].clone() };
+	}
+
+	// the entry of the subtree at node; leaves its key in probe
+	protected Entry lookUp(int opcode, LinearProgram program, int[] ids, int node) {
+		int arity = arities[opcode];
+		int[] arguments = probeArguments[arity];
+		for (int a = 0, child = node + 1; a < arity; a++, child = program.getSubtreeEnd(child))
+			arguments[a] = ids[child];
+		probe.set(opcode, arguments);
+		return hasUnknownArgument(opcode, program, ids, node) ? null : entries.get(probe);
+	}
+
+	protected boolean hasUnknownArgument(int opcode, LinearProgram program, int[] ids, int node) {
+		for (int a = 0, child = node + 1; a < arities[opcode]; a++, child = program.getSubtreeEnd(child))
+			if (ids[child] == UNKNOWN)
+				return true;
+		return false;
+	}
+
+	// structural hash of the subtree at node, from the fingerprints of its arguments
+	protected long fingerprint(int opcode, LinearProgram program, long[] fingerprints, int node) {
+		long hash = (opcode + 1) * 0x9E3779B97F4A7C15L;
+		for (int a = 0, child = node + 1; a < arities[opcode]; a++, child = program.getSubtreeEnd(child)) {
+			hash = (hash ^ fingerprints[child]) * 0xBF58476D1CE4E5B9L;
+			hash ^= hash >>> 31;
+		}
+		return hash == 0 ? 1 : hash;
+	}
+
+	// true when the subtree was computed before; records it otherwise
+	protected boolean markComputed(long fingerprint) {
+		int mask = computedSubtrees.length - 1;
+		for (int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;; slot = (slot + 1) & mask) {
+			if (computedSubtrees[slot] == fingerprint)
+				return true;
+			if (computedSubtrees[slot] == 0) {
+				if (++computedCount > computedSubtrees.length / 2) {
+					Arrays.fill(computedSubtrees, 0L);
+					computedCount = 1;
+				}
+				computedSubtrees[slot] = fingerprint;
+				return false;
+			}
+		}
+	}
+
+	protected double[] evaluateTerminal(int opcode, double[][] rows) {
+		double[] outputs = new double[rows.length];
+		if (kinds[opcode] == CONSTANT)
+			Arrays.fill(outputs, constants[opcode]);
+		else
+			for (int r = 0; r < rows.length; r++)
+				outputs[r] = rows[r][inputIndexes[opcode]];
+		return outputs;
+	}
+
+	// the arguments are on the stack from top (first argument) down; the vectors may be cached, so the
+	// result always goes into a new array
+	protected double[] evaluateOperator(int opcode, double[][] stack, int top, int length) {
+		double[] outputs = new double[length];
+		switch (kinds[opcode]) {
+		case ADD: {
+			double[] a = stack[top], b = stack[top - 1];
+			for (int r = 0; r < length; r++)
+				outputs[r] = a[r] + b[r];
+			break;
+		}
+		case SUB: {
+			double[] a = stack[top], b = stack[top - 1];
+			for (int r = 0; r < length; r++)
+				outputs[r] = a[r] - b[r];
+			break;
+		}
+		case MUL: {
+			double[] a = stack[top], b = stack[top - 1];
+			for (int r = 0; r < length; r++)
+				outputs[r] = a[r] * b[r];
+			break;
+		}
+		case DIV: {
+			// same protection as ProtectedDivision: a zero denominator yields 1
+			double[] a = stack[top], b = stack[top - 1];
+			for (int r = 0; r < length; r++)
+				outputs[r] = b[r] == 0.0 ? 1.0 : a[r] / b[r];
+			break;
+		}
+		case LOGISTIC: {
+			double[] a = stack[top];
+			for (int r = 0; r < length; r++)
+				outputs[r] = Utils.logisticFunction(a[r]);
+			break;
+		}
+		default: {
+			int arity = arities[opcode];
+			double[] arguments = new double[arity];
+			for (int r = 0; r < length; r++) {
+				for (int a = 0; a < arity; a++)
+					arguments[a] = stack[top - a][r];
+				outputs[r] = operators[opcode].performOperation(arguments);
+			}
+		}
+		}
+		return outputs;
+	}
+	// --------------------------------------------------------------------
+
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	public int getMaximumEntries() {
+		return maximumEntries;
+	}
+
+	// operator nodes served from the cache and operator nodes computed
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+}
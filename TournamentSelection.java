@@ -0,0 +1,45 @@
+package algorithms;
+
+import java.util.random.RandomGenerator;
+
+import main.Population;
+import utils.Data;
+
+// Tournament over a fraction of the population, run on a primitive array of training errors
+public class TournamentSelection implements Selection {
+
+	private static final long serialVersionUID = 7L;
+
+	protected double tournamentProportion;
+	protected int tournamentSize;
+	protected transient double[] fitness;
+	protected int populationSize;
+
+	public TournamentSelection(double tournamentProportion) {
+		this.tournamentProportion = tournamentProportion;
+	}
+
+	public void prepare(Population population, Data data) {
+		populationSize = population.getSize();
+		if (fitness == null || fitness.length < populationSize)
+			fitness = new double[populationSize];
+		for (int i = 0; i < populationSize; i++)
+			fitness[i] = population.getIndividual(i).getTrainingError();
+		tournamentSize = Math.max(1, (int) (tournamentProportion * populationSize));
+	}
+
+	// ties are won by the individual drawn first
+	public int select(RandomGenerator random) {
+		int best = random.nextInt(populationSize);
+		for (int i = 1; i < tournamentSize; i++) {
+			int candidate = random.nextInt(populationSize);
+			if (fitness[candidate] < fitness[best])
+				best = candidate;
+		}
+		return best;
+	}
+
+	public int getTournamentSize() {
+		return tournamentSize;
+	}
+}
@@ -0,0 +1,157 @@
+package algorithms;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import utils.Utils;
+
+// SIMD implementation of the GSGP semantic operators on top of jdk.incubator.vector. Only loaded
+// through SemanticKernels.getDefault(), so the rest of the code runs without the incubator module.
+// Every lane follows the operation order of the scalar kernels, so the semantics are the same bits. The
+// logistic function is computed lane by lane with Math.exp: the vectorized exponential differs from it
+// in the last ulp, and differently before and after the JIT compiles it, which made runs depend on the
+// warm-up of the JVM. Only the fused variants differ, since they sum the lanes separately; they stay
+// within a relative 1e-12 of the scalar sums (see SemanticKernelsTest).
+public class VectorSemanticKernels extends SemanticKernels {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final DoubleVector ONE = DoubleVector.broadcast(SPECIES, 1.0);
+	private static final DoubleVector ZERO = DoubleVector.zero(SPECIES);
+	private static final ThreadLocal<double[]> LANES = new ThreadLocal<double[]>() {
+		protected double[] initialValue() {
+			return new double[SPECIES.length()];
+		}
+	};
+
+	public boolean isAccelerated() {
+		return SPECIES.length() > 1;
+	}
+
+	public void buildCrossoverSemantics(double[] parent1, int parent1Offset, double[] parent2, int parent2Offset,
+			double[] randomTree, int randomTreeOffset, double[] offspring, int offspringOffset, int length) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector randomTreeValue = logistic(randomTree, randomTreeOffset + i);
+			DoubleVector parent1Value = DoubleVector.fromArray(SPECIES, parent1, parent1Offset + i);
+			DoubleVector parent2Value = DoubleVector.fromArray(SPECIES, parent2, parent2Offset + i);
+			parent1Value.mul(randomTreeValue).add(ONE.sub(randomTreeValue).mul(parent2Value)).intoArray(offspring,
+					offspringOffset + i);
+		}
+		super.buildCrossoverSemantics(parent1, parent1Offset + i, parent2, parent2Offset + i, randomTree,
+				randomTreeOffset + i, offspring, offspringOffset + i, length - i);
+	}
+
+	public void blendSemantics(double[] parent1, int parent1Offset, double[] parent2, int parent2Offset,
+			double[] weights, int weightsOffset, double[] offspring, int offspringOffset, int length) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector weight = DoubleVector.fromArray(SPECIES, weights, weightsOffset + i);
+			DoubleVector parent1Value = DoubleVector.fromArray(SPECIES, parent1, parent1Offset + i);
+			DoubleVector parent2Value = DoubleVector.fromArray(SPECIES, parent2, parent2Offset + i);
+			parent1Value.mul(weight).add(ONE.sub(weight).mul(parent2Value)).intoArray(offspring, offspringOffset + i);
+		}
+		super.blendSemantics(parent1, parent1Offset + i, parent2, parent2Offset + i, weights, weightsOffset + i,
+				offspring, offspringOffset + i, length - i);
+	}
+
+	public void buildMutationSemantics(double[] parent, int parentOffset, double[] randomTree1,
+			int randomTree1Offset, double[] randomTree2, int randomTree2Offset, double[] offspring,
+			int offspringOffset, int length, double mutationStep, boolean boundMutation) {
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector value1, value2;
+			if (boundMutation) {
+				value1 = logistic(randomTree1, randomTree1Offset + i);
+				value2 = logistic(randomTree2, randomTree2Offset + i);
+			} else {
+				value1 = DoubleVector.fromArray(SPECIES, randomTree1, randomTree1Offset + i);
+				value2 = DoubleVector.fromArray(SPECIES, randomTree2, randomTree2Offset + i);
+			}
+			DoubleVector.fromArray(SPECIES, parent, parentOffset + i).add(value1.sub(value2).mul(mutationStep))
+					.intoArray(offspring, offspringOffset + i);
+		}
+		super.buildMutationSemantics(parent, parentOffset + i, randomTree1, randomTree1Offset + i, randomTree2,
+				randomTree2Offset + i, offspring, offspringOffset + i, length - i, mutationStep, boundMutation);
+	}
+
+	// the lanes accumulate their squared errors separately, so the sum may differ from the scalar one in
+	// the last bits
+	public double buildCrossoverSemantics(double[] parent1, int parent1Offset, double[] parent2, int parent2Offset,
+			double[] randomTree, int randomTreeOffset, double[] offspring, int offspringOffset, double[] targets,
+			int targetsOffset, int length) {
+		DoubleVector sum = ZERO;
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector randomTreeValue = logistic(randomTree, randomTreeOffset + i);
+			DoubleVector parent1Value = DoubleVector.fromArray(SPECIES, parent1, parent1Offset + i);
+			DoubleVector parent2Value = DoubleVector.fromArray(SPECIES, parent2, parent2Offset + i);
+			DoubleVector value = parent1Value.mul(randomTreeValue).add(ONE.sub(randomTreeValue).mul(parent2Value));
+			if (offspring != null)
+				value.intoArray(offspring, offspringOffset + i);
+			sum = accumulateSquaredError(sum, value, targets, targetsOffset + i);
+		}
+		return sum.reduceLanes(VectorOperators.ADD) + super.buildCrossoverSemantics(parent1, parent1Offset + i,
+				parent2, parent2Offset + i, randomTree, randomTreeOffset + i, offspring, offspringOffset + i, targets,
+				targetsOffset + i, length - i);
+	}
+
+	public double blendSemantics(double[] parent1, int parent1Offset, double[] parent2, int parent2Offset,
+			double[] weights, int weightsOffset, double[] offspring, int offspringOffset, double[] targets,
+			int targetsOffset, int length) {
+		DoubleVector sum = ZERO;
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector weight = DoubleVector.fromArray(SPECIES, weights, weightsOffset + i);
+			DoubleVector parent1Value = DoubleVector.fromArray(SPECIES, parent1, parent1Offset + i);
+			DoubleVector parent2Value = DoubleVector.fromArray(SPECIES, parent2, parent2Offset + i);
+			DoubleVector value = parent1Value.mul(weight).add(ONE.sub(weight).mul(parent2Value));
+			if (offspring != null)
+				value.intoArray(offspring, offspringOffset + i);
+			sum = accumulateSquaredError(sum, value, targets, targetsOffset + i);
+		}
+		return sum.reduceLanes(VectorOperators.ADD) + super.blendSemantics(parent1, parent1Offset + i, parent2,
+				parent2Offset + i, weights, weightsOffset + i, offspring, offspringOffset + i, targets,
+				targetsOffset + i, length - i);
+	}
+
+	public double buildMutationSemantics(double[] parent, int parentOffset, double[] randomTree1,
+			int randomTree1Offset, double[] randomTree2, int randomTree2Offset, double[] offspring,
+			int offspringOffset, double[] targets, int targetsOffset, int length, double mutationStep,
+			boolean boundMutation) {
+		DoubleVector sum = ZERO;
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector value1, value2;
+			if (boundMutation) {
+				value1 = logistic(randomTree1, randomTree1Offset + i);
+				value2 = logistic(randomTree2, randomTree2Offset + i);
+			} else {
+				value1 = DoubleVector.fromArray(SPECIES, randomTree1, randomTree1Offset + i);
+				value2 = DoubleVector.fromArray(SPECIES, randomTree2, randomTree2Offset + i);
+			}
+			DoubleVector value = DoubleVector.fromArray(SPECIES, parent, parentOffset + i)
+					.add(value1.sub(value2).mul(mutationStep));
+			if (offspring != null)
+				value.intoArray(offspring, offspringOffset + i);
+			sum = accumulateSquaredError(sum, value, targets, targetsOffset + i);
+		}
+		return sum.reduceLanes(VectorOperators.ADD) + super.buildMutationSemantics(parent, parentOffset + i,
+				randomTree1, randomTree1Offset + i, randomTree2, randomTree2Offset + i, offspring, offspringOffset + i,
+				targets, targetsOffset + i, length - i, mutationStep, boundMutation);
+	}
+
+	protected static DoubleVector accumulateSquaredError(DoubleVector sum, DoubleVector value, double[] targets,
+			int targetsOffset) {
+		DoubleVector error = value.sub(DoubleVector.fromArray(SPECIES, targets, targetsOffset));
+		return sum.add(error.mul(error));	// rounded as the scalar sum, not fused
+	}
+
+	// the logistic function of the values from offset, one lane at a time
+	protected static DoubleVector logistic(double[] values, int offset) {
+		double[] lanes = LANES.get();
+		for (int i = 0; i < lanes.length; i++)
+			lanes[i] = Utils.logisticFunction(values[offset + i]);
+		return DoubleVector.fromArray(SPECIES, lanes, 0);
+	}
+}
@@ -0,0 +1,62 @@
+package algorithms;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import main.Individual;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Evaluation of a full tree on the rows of a dataset, node by node and compiled
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EvaluationBenchmark {
+
+	@Param({ "4", "8" })
+	public int depth;
+
+	@Param({ "5", "50" })
+	public int dimensionality;
+
+	@Param({ "1000", "100000" })
+	public int rows;
+
+	protected double[][] data;
+	protected Individual individual;
+	protected CompiledProgram program;
+
+	@Setup
+	public void setup() {
+		data = SyntheticData.generateRows(rows, dimensionality, 42);
+		individual = new Initializer(dimensionality, new Random(42)).full(depth);
+		program = CompiledProgram.compile(individual);
+	}
+
+	@Benchmark
+	public double[] interpreter() {
+		return individual.evaluate(data);
+	}
+
+	@Benchmark
+	public double[] compiled() {
+		return program.evaluate(data);
+	}
+
+	@Benchmark
+	public double[] compileAndEvaluate() {
+		return CompiledProgram.compile(individual).evaluate(data);
+	}
+}
@@ -0,0 +1,47 @@
+package algorithms;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import main.Population;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class InitializationBenchmark {
+
+	@Param({ "100", "1000" })
+	public int populationSize;
+
+	@Param({ "4", "6", "8" })
+	public int depth;
+
+	@Param({ "5", "50" })
+	public int dimensionality;
+
+	protected Initializer initializer;
+
+	@Setup
+	public void setup() {
+		initializer = new Initializer(dimensionality, new Random(42));
+	}
+
+	@Benchmark
+	public Population rampedHalfAndHalfInitialization() {
+		return initializer.rampedHalfAndHalfInitialization(populationSize, depth);
+	}
+}
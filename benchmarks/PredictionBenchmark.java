@@ -0,0 +1,89 @@
+package algorithms;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import main.Individual;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.Data;
+
+// Scoring new rows with a final model: a full tree through the interpreter, CompiledProgram and the
+// generated predictor, and the model of a semantics-only GSGP run through the lineage archive and the
+// generated predictor
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PredictionBenchmark {
+
+	@Param({ "4", "8" })
+	public int depth;
+
+	@Param({ "20", "50" })
+	public int generations;
+
+	@Param({ "100000" })
+	public int rows;
+
+	protected double[][] data;
+	protected double[] outputs;
+	protected Individual individual;
+	protected CompiledProgram program;
+	protected Predictor treePredictor, lineagePredictor;
+	protected GSGP gsgp;
+
+	@Setup
+	public void setup() {
+		int dimensionality = 10;
+		data = SyntheticData.generateRows(rows, dimensionality, 42);
+		outputs = new double[rows];
+		individual = new Initializer(dimensionality, new Random(42)).full(depth);
+		program = CompiledProgram.compile(individual);
+		treePredictor = PredictorCompiler.compile(individual);
+
+		Data trainingData = SyntheticData.generate(1000, 250, dimensionality, 42);
+		gsgp = new GSGP(trainingData, 42, ExperimentScheduler.createMetricsSink(null, null));
+		gsgp.setLineageArchive(true);
+		gsgp.search(generations);
+		lineagePredictor = gsgp.compilePredictor();
+	}
+
+	@Benchmark
+	public double[] interpreter() {
+		return individual.evaluate(data);
+	}
+
+	@Benchmark
+	public double[] compiled() {
+		return program.evaluate(data);
+	}
+
+	@Benchmark
+	public double[] generated() {
+		treePredictor.predict(data, outputs);
+		return outputs;
+	}
+
+	@Benchmark
+	public double[] lineageArchive() {
+		return gsgp.predict(data);
+	}
+
+	@Benchmark
+	public double[] lineageGenerated() {
+		lineagePredictor.predict(data, outputs);
+		return outputs;
+	}
+}
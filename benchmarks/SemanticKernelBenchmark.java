@@ -0,0 +1,71 @@
+package algorithms;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The GSGP semantic operators on rows values, with the scalar and the default (SIMD when available) kernels
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SemanticKernelBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int rows;
+
+	@Param({ "scalar", "default" })
+	public String kernels;
+
+	protected SemanticKernels semanticKernels;
+	protected double[] parent1, parent2, randomTree1, randomTree2, offspring;
+
+	@Setup
+	public void setup() {
+		semanticKernels = kernels.equals("scalar") ? new SemanticKernels() : SemanticKernels.getDefault();
+		Random r = new Random(42);
+		parent1 = new double[rows];
+		parent2 = new double[rows];
+		randomTree1 = new double[rows];
+		randomTree2 = new double[rows];
+		offspring = new double[rows];
+		for (int i = 0; i < rows; i++) {
+			parent1[i] = r.nextGaussian();
+			parent2[i] = r.nextGaussian();
+			randomTree1[i] = r.nextGaussian() * 5.0;
+			randomTree2[i] = r.nextGaussian() * 5.0;
+		}
+	}
+
+	@Benchmark
+	public double[] crossover() {
+		semanticKernels.buildCrossoverSemantics(parent1, 0, parent2, 0, randomTree1, 0, offspring, 0, rows);
+		return offspring;
+	}
+
+	@Benchmark
+	public double[] boundedMutation() {
+		semanticKernels.buildMutationSemantics(parent1, 0, randomTree1, 0, randomTree2, 0, offspring, 0, rows, 0.1,
+				true);
+		return offspring;
+	}
+
+	@Benchmark
+	public double[] logistic() {
+		semanticKernels.logistic(randomTree1, 0, offspring, 0, rows);
+		return offspring;
+	}
+}
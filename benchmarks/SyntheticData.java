@@ -0,0 +1,34 @@
+package algorithms;
+
+import java.util.Random;
+
+import utils.Data;
+
+// Generates regression datasets in memory, so the benchmarks need no data files. Every row holds
+// dimensionality features drawn uniformly from [-1, 1] followed by the target, as in the text datasets.
+public class SyntheticData {
+
+	public static double[][] generateRows(int rows, int dimensionality, long seed) {
+		Random r = new Random(seed);
+		double[][] data = new double[rows][dimensionality + 1];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < dimensionality; j++)
+				data[i][j] = r.nextDouble() * 2.0 - 1.0;
+			data[i][dimensionality] = target(data[i], dimensionality) + r.nextGaussian() * 0.01;
+		}
+		return data;
+	}
+
+	// a fixed polynomial of the first (up to) three features
+	protected static double target(double[] row, int dimensionality) {
+		double x0 = row[0];
+		double x1 = dimensionality > 1 ? row[1] : 0.0;
+		double x2 = dimensionality > 2 ? row[2] : 0.0;
+		return x0 * x1 + x2 * x2 - 0.5 * x0;
+	}
+
+	public static Data generate(int trainingRows, int unseenRows, int dimensionality, long seed) {
+		return new Data(generateRows(trainingRows, dimensionality, seed),
+				generateRows(unseenRows, dimensionality, seed + 1));
+	}
+}
@@ -0,0 +1,87 @@
+package algorithms;
+
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+import main.Individual;
+import main.Population;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.Data;
+
+// Selection and variation of GP and GSGP (semantics only) on an evaluated population of the given size
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VariationBenchmark {
+
+	@Param({ "100", "1000" })
+	public int populationSize;
+
+	@Param({ "6" })
+	public int depth;
+
+	@Param({ "5", "50" })
+	public int dimensionality;
+
+	@Param({ "1000", "100000" })
+	public int rows;
+
+	protected GP gp;
+	protected GSGP gsgp;
+	protected RandomGenerator random;
+
+	@Setup
+	public void setup() {
+		Data data = SyntheticData.generate(rows, rows / 4, dimensionality, 42);
+		gp = new GP(data, 42);
+		gsgp = new GSGP(data, 42);
+		Population population = gp.initializer.rampedHalfAndHalfInitialization(populationSize, depth);
+		population.evaluate(data);
+		gp.population = population;
+		gsgp.population = population;
+		random = RandomGenerators.create(42);
+		gp.selection.prepare(population, data);
+	}
+
+	@Benchmark
+	public Individual tournamentSelection() {
+		return gp.select(random);
+	}
+
+	@Benchmark
+	public Individual crossover() {
+		return gp.crossover(randomIndividual(), randomIndividual(), random);
+	}
+
+	@Benchmark
+	public Individual mutation() {
+		return gp.mutation(randomIndividual(), random);
+	}
+
+	@Benchmark
+	public Individual gsgpCrossoverSemantics() {
+		return gsgp.crossoverSemantics(randomIndividual(), randomIndividual(), random);
+	}
+
+	@Benchmark
+	public Individual gsgpMutationSemantics() {
+		return gsgp.buildMutationSemantics(randomIndividual(), random);
+	}
+
+	protected Individual randomIndividual() {
+		return gp.population.getIndividual(random.nextInt(gp.population.getSize()));
+	}
+}
@@ -0,0 +1,70 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.function.Executable;
+
+@Timeout(60)
+public class AsyncMetricsSinkTest {
+
+	protected static class CountingWriter implements MetricsWriter {
+		protected int written, flushes;
+		protected boolean closed, failing;
+
+		public void write(double[] values) throws IOException {
+			if (failing)
+				throw new IOException("disk full");
+			written++;
+		}
+
+		public void flush() throws IOException {
+			flushes++;
+		}
+
+		public void close() throws IOException {
+			closed = true;
+		}
+	}
+
+	// the writer is only flushed when the sink is closed, however often the ring runs empty
+	@Test
+	public void flushesOnlyOnClose() throws InterruptedException {
+		CountingWriter writer = new CountingWriter();
+		AsyncMetricsSink sink = new AsyncMetricsSink(writer, 4);
+		for (int i = 0; i < 10; i++) {
+			sink.record(new double[MetricsSink.FIELDS.length]);
+			Thread.sleep(5);
+		}
+		sink.close();
+
+		assertEquals(10, writer.written);
+		assertEquals(0, writer.flushes);
+		assertTrue(writer.closed);
+	}
+
+	// a full ring whose writer has failed fails the producer instead of blocking it
+	@Test
+	public void failedWriterFailsRecord() {
+		CountingWriter writer = new CountingWriter();
+		writer.failing = true;
+		final AsyncMetricsSink sink = new AsyncMetricsSink(writer, 4);
+		assertThrows(IllegalStateException.class, new Executable() {
+			public void execute() {
+				for (int i = 0; i < 100; i++)
+					sink.record(new double[MetricsSink.FIELDS.length]);
+			}
+		});
+		assertThrows(IllegalStateException.class, new Executable() {
+			public void execute() {
+				sink.close();
+			}
+		});
+		assertTrue(writer.closed);
+	}
+}
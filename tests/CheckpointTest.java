@@ -0,0 +1,102 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import utils.Data;
+
+public class CheckpointTest {
+
+	protected Data data = TestData.generate(100, 20, 1);
+
+	protected GP create(boolean gsgp) {
+		if (!gsgp)
+			return new GP(data, 9);
+		GSGP run = new GSGP(data, 9);
+		run.setKernels(new SemanticKernels());
+		return run;
+	}
+
+	// the same seed gives the same run with and without checkpoints
+	@Test
+	public void checkpointsDoNotChangeTheRun() throws IOException {
+		for (boolean gsgp : new boolean[] { false, true }) {
+			GP plain = create(gsgp);
+			plain.search(8);
+			GP checkpointed = create(gsgp);
+			checkpointed.setCheckpoint(Files.createTempFile("checkpoint", ".bin").toFile(), 2);
+			checkpointed.search(8);
+
+			assertEquals(plain.getCurrentBest().getTrainingError(), checkpointed.getCurrentBest().getTrainingError());
+		}
+	}
+
+	// a resumed run continues like the uninterrupted one and keeps its seed
+	@Test
+	public void resumedRunContinues() throws IOException {
+		for (boolean gsgp : new boolean[] { false, true }) {
+			File file = Files.createTempFile("checkpoint", ".bin").toFile();
+			GP full = create(gsgp);
+			full.search(10);
+			GP interrupted = create(gsgp);
+			interrupted.setCheckpoint(file, 5);
+			interrupted.search(5);
+			interrupted.setCheckpoint(null, 0);
+			GP resumed = gsgp ? new GSGP(data, file) : new GP(data, file);
+			if (gsgp)
+				((GSGP) resumed).setKernels(new SemanticKernels());
+			resumed.search(10);
+
+			assertEquals(9L, resumed.getSeed());
+			assertEquals(full.getCurrentBest().getTrainingError(), resumed.getCurrentBest().getTrainingError());
+		}
+	}
+
+	@Test
+	public void failedWriteIsReported() throws IOException {
+		File directory = Files.createTempDirectory("checkpoint").toFile();
+		final GP gp = create(false);
+		gp.setCheckpoint(new File(new File(directory, "missing"), "checkpoint.bin"), 1);
+		assertThrows(IllegalStateException.class, new Executable() {
+			public void execute() {
+				gp.search(2);
+			}
+		});
+	}
+
+	// a checkpoint due while the previous one is still being written is skipped, and a failure of the write
+	// in flight is reported once it completes
+	@Test
+	public void slowWritesAreSkippedAndReported() throws IOException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final Checkpoint checkpoint = new Checkpoint(Files.createTempFile("checkpoint", ".bin").toFile(), 1) {
+			protected void writeFile(ByteBuffer snapshot) throws IOException {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				throw new IOException("disk full");
+			}
+		};
+		final GP gp = create(false);
+		checkpoint.write(gp);
+		checkpoint.write(gp);
+		assertEquals(1, checkpoint.getSkippedWrites());
+		release.countDown();
+		assertThrows(IllegalStateException.class, new Executable() {
+			public void execute() {
+				checkpoint.flush();
+			}
+		});
+	}
+}
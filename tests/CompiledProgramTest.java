@@ -0,0 +1,87 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.DoubleBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import main.Individual;
+import programElements.Addition;
+import programElements.Constant;
+import programElements.InputVariable;
+import programElements.LogisticFunction;
+import programElements.Multiplication;
+import programElements.ProgramElement;
+import programElements.ProtectedDivision;
+import programElements.Subtraction;
+
+// CompiledProgram has to produce bitwise the same outputs as the interpreter of Individual
+public class CompiledProgramTest {
+
+	// more rows than a block, with values for the edge cases of protected division and the logistic function
+	protected static double[][] rows() {
+		double[][] rows = TestData.generateRows(CompiledProgram.BLOCK_SIZE * 2 + 17, 3);
+		double[][] special = { { 0.0, 0.0, 0.0 }, { -0.0, 0.0, 1.0 }, { 1e300, -1e300, 1e-300 },
+				{ 800.0, -800.0, 0.0 }, { Double.MAX_VALUE, Double.MIN_VALUE, -1.0 },
+				{ Double.POSITIVE_INFINITY, 1.0, Double.NEGATIVE_INFINITY } };
+		for (int i = 0; i < special.length; i++)
+			System.arraycopy(special[i], 0, rows[i * 31], 0, 3);
+		return rows;
+	}
+
+	protected static void assertEquivalent(Individual individual, double[][] rows) {
+		double[] interpreted = individual.evaluate(rows);
+		CompiledProgram program = CompiledProgram.compile(individual);
+		double[] compiled = program.evaluate(rows);
+		DoubleBuffer[] columns = new DoubleBuffer[3];
+		for (int j = 0; j < columns.length; j++) {
+			columns[j] = DoubleBuffer.allocate(rows.length);
+			for (double[] row : rows)
+				columns[j].put(row[j]);
+			columns[j].flip();
+		}
+		double[] fromColumns = program.evaluate(columns, rows.length);
+		for (int i = 0; i < rows.length; i++) {
+			assertEquals(interpreted[i], compiled[i], "row " + i);
+			assertEquals(interpreted[i], fromColumns[i], "row " + i + " from columns");
+		}
+	}
+
+	protected static Individual program(ProgramElement... elements) {
+		Individual individual = new Individual();
+		for (ProgramElement element : elements)
+			individual.addProgramElement(element);
+		individual.calculateDepth();
+		return individual;
+	}
+
+	@Test
+	public void randomTrees() {
+		double[][] rows = rows();
+		Initializer initializer = new Initializer(3, RandomGenerators.create(3));
+		for (int i = 0; i < 300; i++)
+			assertEquivalent(i % 2 == 0 ? initializer.grow(8) : initializer.full(1 + i % 7), rows);
+	}
+
+	@Test
+	public void edgeCases() {
+		double[][] rows = rows();
+		// division by zero, by negative zero and by a difference that is zero on every row
+		assertEquivalent(program(new ProtectedDivision(), new InputVariable(2), new InputVariable(0)), rows);
+		assertEquivalent(program(new ProtectedDivision(), new InputVariable(0), new Constant(-0.0)), rows);
+		assertEquivalent(program(new ProtectedDivision(), new Constant(1.0), new Subtraction(), new InputVariable(1),
+				new InputVariable(1)), rows);
+		// division overflowing to infinity, and infinity minus infinity
+		assertEquivalent(program(new Subtraction(), new ProtectedDivision(), new InputVariable(0),
+				new InputVariable(1), new InputVariable(0)), rows);
+		// logistic function saturating at both ends and of NaN
+		assertEquivalent(program(new LogisticFunction(), new Multiplication(), new InputVariable(0),
+				new Constant(1e3)), rows);
+		assertEquivalent(program(new LogisticFunction(), new Subtraction(), new InputVariable(2),
+				new InputVariable(2)), rows);
+		assertEquivalent(program(new Addition(), new LogisticFunction(), new InputVariable(1), new Constant(0.5)),
+				rows);
+		assertEquivalent(program(new Constant(-2.5)), rows);
+	}
+}
@@ -0,0 +1,61 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import utils.Data;
+
+public class ExperimentSchedulerTest {
+
+	protected Data data = TestData.generate(100, 20, 1);
+
+	// every metrics row, the initial generation included, carries the run number of its run
+	@Test
+	public void runNumbersOfAllGenerations() {
+		final List<List<double[]>> rows = new ArrayList<List<double[]>>();
+		ExperimentScheduler scheduler = new ExperimentScheduler(2, 42) {
+			protected MetricsSink createMetricsSink(Configuration configuration, int run) {
+				final List<double[]> runRows = new ArrayList<double[]>();
+				synchronized (rows) {
+					while (rows.size() <= run)
+						rows.add(null);
+					rows.set(run, runRows);
+				}
+				return new MetricsSink() {
+					public void record(double[] values) {
+						runRows.add(values.clone());
+					}
+
+					public void close() {
+					}
+				};
+			}
+		};
+		final List<GP> runs = new ArrayList<GP>();
+		scheduler.addConfiguration("gp", data, 3, 4, new ExperimentScheduler.RunFactory() {
+			public GP create(Data data, int run, long seed, MetricsSink metrics) {
+				GP gp = new GP(data, run, seed, metrics);
+				gp.setThreads(2);
+				synchronized (runs) {
+					runs.add(gp);
+				}
+				return gp;
+			}
+		});
+		scheduler.run();
+
+		for (int run = 0; run < 3; run++) {
+			assertEquals(5, rows.get(run).size());
+			for (double[] row : rows.get(run))
+				assertEquals(run, row[0], 0.0);
+		}
+		// the worker threads of every run are stopped when it ends
+		for (GP gp : runs)
+			assertNull(gp.pool);
+	}
+}
@@ -0,0 +1,71 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import main.Individual;
+import utils.Data;
+
+public class LazySemanticIndividualTest {
+
+	protected Data data = TestData.generate(1000, 20, 1);
+	protected Initializer initializer = new Initializer(3, RandomGenerators.create(2));
+	protected SemanticKernels kernels = new SemanticKernels();
+
+	protected LazySemanticIndividual randomParent() {
+		Individual individual = initializer.full(3);
+		individual.evaluate(data);
+		return LazySemanticIndividual.wrap(individual);
+	}
+
+	// offspring that only know the rows of a batch do not allocate the full arrays, and fill in the same
+	// semantics as the kernels once materialized
+	@Test
+	public void batchRowsOnly() {
+		LazySemanticIndividual p1 = randomParent(), p2 = randomParent();
+		RandomTree randomTree1 = new RandomTree(initializer.grow(3), data);
+		RandomTree randomTree2 = new RandomTree(initializer.grow(3), data);
+		LazySemanticIndividual crossover = LazySemanticIndividual.crossover(p1, p2, randomTree1);
+		LazySemanticIndividual mutation = LazySemanticIndividual.mutation(crossover, randomTree1, randomTree2, 0.1,
+				true);
+
+		int[] batch = { 5, 17, 400, 999 };
+		double[] targets = SemanticStore.extractTargets(data.getTrainingData());
+		mutation.ensureTrainingRows(batch, targets);
+		assertNull(mutation.trainingSemantics);
+		assertNull(crossover.trainingSemantics);
+
+		int length = targets.length;
+		double[] expectedCrossover = new double[length], expectedMutation = new double[length];
+		kernels.buildCrossoverSemantics(p1.getTrainingOutputs(), 0, p2.getTrainingOutputs(), 0,
+				randomTree1.getTrainingSemantics(), 0, expectedCrossover, 0, length);
+		kernels.buildMutationSemantics(expectedCrossover, 0, randomTree1.getTrainingSemantics(), 0,
+				randomTree2.getTrainingSemantics(), 0, expectedMutation, 0, length, 0.1, true);
+		double[] batchValues = mutation.getTrainingRows(batch);
+		for (int i = 0; i < batch.length; i++)
+			assertEquals(expectedMutation[batch[i]], batchValues[i]);
+
+		assertArrayEquals(expectedMutation, mutation.getTrainingOutputs());
+		assertArrayEquals(expectedCrossover, crossover.getTrainingOutputs());
+		assertTrue(mutation.isMaterialized());
+	}
+
+	// past a quarter of the rows the known rows move to the full arrays
+	@Test
+	public void manyRowsAreDense() {
+		LazySemanticIndividual offspring = LazySemanticIndividual.crossover(randomParent(), randomParent(),
+				new RandomTree(initializer.grow(3), data));
+		int[] rows = new int[300];
+		for (int i = 0; i < rows.length; i++)
+			rows[i] = i * 3;
+		double[] values = offspring.getTrainingRows(rows);
+		assertEquals(1000, offspring.trainingSemantics.length);
+		assertNull(offspring.sparseRows);
+		for (int i = 0; i < rows.length; i++)
+			assertEquals(values[i], offspring.trainingSemantics[rows[i]]);
+	}
+}
@@ -0,0 +1,71 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.random.RandomGenerator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import main.Population;
+import utils.Data;
+import utils.Parameters;
+
+public class LexicaseSelectionTest {
+
+	protected Data data = TestData.generate(100, 20, 1);
+
+	// stored individuals are read in place, so the store does not change the run
+	@Test
+	public void sameRunWithSemanticStore() {
+		boolean buildIndividuals = Parameters.BUILD_INDIVIDUALS;
+		Parameters.BUILD_INDIVIDUALS = false;
+		try {
+			GSGP plain = new GSGP(data, 5);
+			plain.setSelection(new LexicaseSelection(0.01));
+			plain.search(10);
+			GSGP stored = new GSGP(data, 5);
+			stored.setSelection(new LexicaseSelection(0.01));
+			stored.setSemanticStore(true);
+			stored.search(10);
+			assertEquals(plain.getCurrentBest().getTrainingError(), stored.getCurrentBest().getTrainingError());
+		} finally {
+			Parameters.BUILD_INDIVIDUALS = buildIndividuals;
+		}
+	}
+
+	// without cases every individual is a candidate
+	@Test
+	public void noCases() {
+		Initializer initializer = new Initializer(3, RandomGenerators.create(2));
+		Population population = new Population();
+		for (int i = 0; i < 4; i++)
+			population.addIndividual(initializer.full(2));
+		LexicaseSelection selection = new LexicaseSelection(0.0);
+		selection.prepare(population, new Data(new double[0][], TestData.generateRows(20, 2)));
+		RandomGenerator random = RandomGenerators.create(3);
+		for (int i = 0; i < 10; i++) {
+			int selected = selection.select(random);
+			assertTrue(selected >= 0 && selected < population.getSize());
+		}
+	}
+
+	@Test
+	public void miniBatchesRejectLexicase() {
+		boolean buildIndividuals = Parameters.BUILD_INDIVIDUALS;
+		Parameters.BUILD_INDIVIDUALS = false;
+		try {
+			final GSGP gsgp = new GSGP(data, 5);
+			gsgp.setMiniBatch(new MiniBatch(20));
+			assertThrows(IllegalStateException.class, new Executable() {
+				public void execute() {
+					gsgp.setSelection(new LexicaseSelection(0.0));
+				}
+			});
+		} finally {
+			Parameters.BUILD_INDIVIDUALS = buildIndividuals;
+		}
+	}
+}
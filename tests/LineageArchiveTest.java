@@ -0,0 +1,74 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import main.Individual;
+import main.Population;
+import utils.Data;
+import utils.Parameters;
+
+public class LineageArchiveTest {
+
+	protected Data data = TestData.generate(100, 20, 1);
+
+	// a pooled random tree is shared by several archives, and each must index it in its own tree list
+	@Test
+	public void sharedRandomTreeIsIndexedPerArchive() {
+		Initializer initializer = new Initializer(3, RandomGenerators.create(2));
+		RandomTree randomTree = new RandomTree(initializer.full(3), data);
+		Population population = new Population();
+		population.addIndividual(initializer.full(2));
+		population.addIndividual(initializer.full(2));
+
+		LineageArchive first = new LineageArchive(new Population());
+		Individual individual = new Individual();
+		first.recordTree(individual, randomTree);
+		LineageArchive second = new LineageArchive(population);
+		int entry = second.recordTree(individual, randomTree);
+
+		double[][] rows = data.getUnseenData();
+		assertArrayEquals(randomTree.getTree().evaluate(rows), second.evaluate(entry, rows), 1e-9);
+	}
+
+	@Test
+	public void predictNeedsTheArchive() {
+		final GSGP gsgp = new GSGP(data, 5);
+		assertThrows(IllegalStateException.class, new Executable() {
+			public void execute() {
+				gsgp.predict(data.getUnseenData());
+			}
+		});
+	}
+
+	// semantics-only offspring have no program, so the archive cannot start after the first generation or
+	// from a resumed run
+	@Test
+	public void archiveMustStartWithTheSearch() throws IOException {
+		boolean buildIndividuals = Parameters.BUILD_INDIVIDUALS;
+		Parameters.BUILD_INDIVIDUALS = false;
+		try {
+			File file = Files.createTempFile("checkpoint", ".bin").toFile();
+			final GSGP started = new GSGP(data, 5);
+			started.setCheckpoint(file, 3);
+			started.search(3);
+			started.setCheckpoint(null, 0);
+			final GSGP resumed = new GSGP(data, file);
+			for (final GSGP gsgp : new GSGP[] { started, resumed })
+				assertThrows(IllegalStateException.class, new Executable() {
+					public void execute() {
+						gsgp.setLineageArchive(true);
+					}
+				});
+		} finally {
+			Parameters.BUILD_INDIVIDUALS = buildIndividuals;
+		}
+	}
+}
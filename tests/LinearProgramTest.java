@@ -0,0 +1,92 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.random.RandomGenerator;
+
+import org.junit.jupiter.api.Test;
+
+import main.Individual;
+
+public class LinearProgramTest {
+
+	protected static void assertConsistent(LinearProgram program, Initializer initializer) {
+		Individual individual = program.toIndividual();
+		LinearProgram converted = LinearProgram.convert(individual, initializer);
+		assertArrayEquals(converted.opcodes, program.opcodes);
+		assertArrayEquals(converted.subtreeEnds, program.subtreeEnds);
+		assertArrayEquals(converted.levels, program.levels);
+		assertArrayEquals(converted.heights, program.heights);
+		individual.calculateDepth();
+		assertEquals(individual.getDepth(), program.getDepth());
+	}
+
+	// spliced programs, bred from each other over many generations, match a conversion from scratch
+	@Test
+	public void splicingKeepsTheArraysConsistent() {
+		RandomGenerator random = RandomGenerators.create(5);
+		Initializer initializer = new Initializer(3, RandomGenerators.create(6));
+		LinearProgram[] population = new LinearProgram[20];
+		for (int i = 0; i < population.length; i++)
+			population[i] = LinearProgram.fromIndividual(initializer.grow(5), initializer);
+		for (int generation = 0; generation < 30; generation++) {
+			LinearProgram[] offspring = new LinearProgram[population.length];
+			for (int i = 0; i < offspring.length; i++) {
+				LinearProgram parent = population[random.nextInt(population.length)];
+				LinearProgram donor = random.nextBoolean() ? population[random.nextInt(population.length)]
+						: LinearProgram.fromIndividual(initializer.grow(3), initializer);
+				offspring[i] = parent.replaceSubtree(random.nextInt(parent.getSize()), donor,
+						random.nextInt(donor.getSize()));
+				// keep the programs from growing without bounds
+				if (offspring[i].getSize() > 200)
+					offspring[i] = parent;
+				assertConsistent(offspring[i], initializer);
+			}
+			population = offspring;
+		}
+	}
+
+	// individuals bred from a program keep it, and others are converted only once
+	@Test
+	public void individualsKeepTheirProgram() {
+		Initializer initializer = new Initializer(3, RandomGenerators.create(6));
+		Individual tree = initializer.grow(4);
+		LinearProgram program = LinearProgram.fromIndividual(tree, initializer);
+		assertSame(program, LinearProgram.fromIndividual(tree, initializer));
+
+		LinearProgram offspring = program.replaceSubtree(0, program, 0);
+		assertSame(offspring, LinearProgram.fromIndividual(offspring.toIndividual(), initializer));
+	}
+
+	// parents shared by the breeding threads are converted concurrently, and every thread gets a whole program
+	@Test
+	public void concurrentConversions() {
+		final Initializer initializer = new Initializer(3, RandomGenerators.create(7));
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int round = 0; round < 50; round++) {
+				final Individual parent = initializer.grow(6);
+				final LinearProgram[] programs = new LinearProgram[8];
+				ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[programs.length];
+				for (int t = 0; t < tasks.length; t++) {
+					final int slot = t;
+					tasks[t] = pool.submit(new Runnable() {
+						public void run() {
+							programs[slot] = LinearProgram.fromIndividual(parent, initializer);
+						}
+					});
+				}
+				for (ForkJoinTask<?> task : tasks)
+					task.join();
+				for (LinearProgram program : programs)
+					assertConsistent(program, initializer);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.function.Executable;
+
+import utils.Data;
+
+// An island that stops early must not leave the islands receiving from it waiting for its emigrants.
+@Timeout(120)
+public class MigrationTest {
+
+	protected static final int GENERATIONS = 20;
+
+	protected Data data = TestData.generate(200, 50, 1);
+
+	@Test
+	public void localIslandStoppingEarly() {
+		final AtomicInteger created = new AtomicInteger();
+		IslandModel model = new IslandModel(MigrationTopology.ring(2), 2, 2, 42);
+		model.run(data, GENERATIONS, new ExperimentScheduler.RunFactory() {
+			public GP create(Data data, int run, long seed, MetricsSink metrics) {
+				GP gp = new GP(data, run, seed, metrics);
+				if (created.getAndIncrement() == 0)
+					gp.addStoppingCriterion(StoppingCriteria.evaluationLimit(1));
+				return gp;
+			}
+		});
+
+		int stopped = model.getIslands()[0].getMetCriterion() != null ? 0 : 1;
+		GP stoppedIsland = model.getIslands()[stopped], other = model.getIslands()[1 - stopped];
+		assertTrue(stoppedIsland.getMetCriterion() != null);
+		assertTrue(stoppedIsland.getCurrentGeneration() < other.getCurrentGeneration());
+		assertNull(other.getMetCriterion());
+	}
+
+	@Test
+	public void socketIslandStoppingEarly() throws Exception {
+		final SocketAddress[] addresses = SocketMigration.unixAddresses(
+				Files.createTempDirectory("islands").toFile(), 2);
+		final SocketMigration[] migrations = new SocketMigration[2];
+		final GP[] islands = new GP[2];
+		final Throwable[] failures = new Throwable[2];
+		Thread[] threads = new Thread[2];
+		for (int i = 0; i < 2; i++) {
+			final int island = i;
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						migrations[island] = new SocketMigration(MigrationTopology.ring(2), island, 2, 2, addresses);
+						GP gp = new GP(data, 100 + island);
+						if (island == 0)
+							gp.addStoppingCriterion(StoppingCriteria.evaluationLimit(1));
+						gp.setMigration(migrations[island]);
+						gp.search(GENERATIONS);
+						islands[island] = gp;
+					} catch (Throwable e) {
+						failures[island] = e;
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		// the stopped island stays reachable until its destinations are done
+		for (SocketMigration migration : migrations)
+			migration.close();
+
+		assertNull(failures[0]);
+		assertNull(failures[1]);
+		assertTrue(islands[0].getCurrentGeneration() < islands[1].getCurrentGeneration());
+	}
+
+	@Test
+	public void finishedSourceIsNotWaitedFor() throws IOException {
+		LocalMigration[] migrations = LocalMigration.create(MigrationTopology.ring(2), 1, 1);
+		migrations[0].send(1, 1, new byte[] { 1 });
+		migrations[0].finish();
+
+		assertArrayEquals(new byte[] { 1 }, migrations[1].receive(0, 1));
+		assertNull(migrations[1].receive(0, 2));
+		assertTrue(migrations[0].isFinished());
+	}
+
+	@Test
+	public void connectionClosedBeforeFinishing() throws Exception {
+		File directory = Files.createTempDirectory("islands").toFile();
+		SocketAddress[] addresses = SocketMigration.unixAddresses(directory, 2);
+		SocketMigration source = new SocketMigration(MigrationTopology.ring(2), 0, 1, 1, addresses);
+		SocketMigration destination = new SocketMigration(MigrationTopology.ring(2), 1, 1, 1, addresses);
+		try {
+			source.send(1, 1, new byte[] { 1, 2 });
+			source.closeChannels();
+
+			assertArrayEquals(new byte[] { 1, 2 }, destination.receive(0, 1));
+			final SocketMigration receiving = destination;
+			assertThrows(IOException.class, new Executable() {
+				public void execute() throws Throwable {
+					receiving.receive(0, 2);
+				}
+			});
+		} finally {
+			destination.closeChannels();
+		}
+	}
+
+	@Test
+	public void connectionClosedAfterFinishing() throws Exception {
+		File directory = Files.createTempDirectory("islands").toFile();
+		SocketAddress[] addresses = SocketMigration.unixAddresses(directory, 2);
+		SocketMigration source = new SocketMigration(MigrationTopology.ring(2), 0, 1, 1, addresses);
+		SocketMigration destination = new SocketMigration(MigrationTopology.ring(2), 1, 1, 1, addresses);
+		try {
+			source.close();
+			assertNull(destination.receive(0, 1));
+			assertEquals(true, source.isFinished());
+		} finally {
+			destination.closeChannels();
+		}
+	}
+
+	// in a ring of three islands, island 1 only sends to island 2 and learns that it finished from the
+	// notice island 2 sends back
+	@Test
+	public void localSenderLearnsOfFinishedDestination() throws IOException {
+		LocalMigration[] migrations = LocalMigration.create(MigrationTopology.ring(3), 1, 1);
+		migrations[1].send(2, 1, new byte[] { 1 });
+		migrations[2].finish();
+		migrations[1].drain();
+
+		assertTrue(migrations[1].finishedIslands[2]);
+		assertTrue(migrations[2].inboxes[2].isEmpty());
+	}
+
+	@Test
+	public void socketSenderLearnsOfFinishedDestination() throws Exception {
+		SocketAddress[] addresses = SocketMigration.unixAddresses(Files.createTempDirectory("islands").toFile(), 3);
+		SocketMigration[] migrations = new SocketMigration[3];
+		for (int i = 0; i < 3; i++)
+			migrations[i] = new SocketMigration(MigrationTopology.ring(3), i, 1, 1, addresses);
+		try {
+			migrations[1].send(2, 1, new byte[] { 1 });
+			assertArrayEquals(new byte[] { 1 }, migrations[2].receive(1, 1));
+			migrations[2].close();
+			long deadline = System.currentTimeMillis() + 10000;
+			while (!migrations[1].finishedIslands[2] && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+				migrations[1].drain();
+			}
+			assertTrue(migrations[1].finishedIslands[2]);
+
+			// the connection to the finished island is closed, which a sender that was told tolerates
+			for (int generation = 2; generation < 5; generation++)
+				migrations[1].send(2, generation, new byte[1 << 16]);
+			migrations[0].close();
+			migrations[1].close();
+		} finally {
+			for (SocketMigration migration : migrations)
+				migration.closeChannels();
+		}
+	}
+}
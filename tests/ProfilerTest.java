@@ -0,0 +1,84 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+import utils.Data;
+
+public class ProfilerTest {
+
+	protected Data data = TestData.generate(100, 20, 1);
+
+	// semantics-only offspring and the random trees they are built from are both counted
+	@Test
+	public void countsSemanticEvaluations() {
+		GSGP gsgp = new GSGP(data, 42);
+		gsgp.setKernels(new SemanticKernels());
+		Profiler profiler = new Profiler();
+		gsgp.setProfiler(profiler);
+		gsgp.search(3);
+		profiler.close();
+
+		assertTrue(profiler.getCalls(Profiler.RANDOM_TREES) > 0);
+		// every random tree is evaluated on at least its root, on all rows
+		assertTrue(profiler.getEvaluatedNodes() >= profiler.getCalls(Profiler.RANDOM_TREES) * 120);
+		assertTrue(profiler.getEvaluatedNodes() > profiler.getEvaluatedRows());
+	}
+
+	// the stage times of the profiler are the ones recorded with the metrics
+	@Test
+	public void sharesTheStageTimers() {
+		final long[] recorded = new long[4];
+		GP gp = new GP(data, 42, new MetricsSink() {
+			public void record(double[] values) {
+				for (int i = 0; i < 4; i++)
+					recorded[i] += (long) values[8 + i];
+			}
+
+			public void close() {
+			}
+		});
+		Profiler profiler = new Profiler(false);
+		gp.setProfiler(profiler);
+		gp.search(3);
+
+		assertEquals(recorded[0], profiler.getTime(Profiler.SELECTION));
+		assertEquals(recorded[1], profiler.getTime(Profiler.VARIATION));
+		assertEquals(recorded[2], profiler.getTime(Profiler.EVALUATION));
+		assertEquals(recorded[3], profiler.getTime(Profiler.REPLACEMENT));
+	}
+
+	// allocation is measured only while a profiler is open, and the JVM-wide setting is restored after the
+	// last one is closed
+	@Test
+	public void restoresTheAllocationSetting() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+			return;
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		if (!bean.isThreadAllocatedMemorySupported())
+			return;
+		boolean enabled = bean.isThreadAllocatedMemoryEnabled();
+		try {
+			bean.setThreadAllocatedMemoryEnabled(false);
+			Profiler first = new Profiler(), second = new Profiler();
+			assertTrue(bean.isThreadAllocatedMemoryEnabled());
+			first.close();
+			assertTrue(bean.isThreadAllocatedMemoryEnabled());
+			second.close();
+			second.close();
+			assertFalse(bean.isThreadAllocatedMemoryEnabled());
+
+			bean.setThreadAllocatedMemoryEnabled(true);
+			new Profiler().close();
+			assertTrue(bean.isThreadAllocatedMemoryEnabled());
+		} finally {
+			bean.setThreadAllocatedMemoryEnabled(enabled);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import utils.Data;
+
+public class RandomTreePoolTest {
+
+	protected Data data = TestData.generate(100, 20, 1);
+
+	// the trees are grown on the threads of the run, and do not depend on their number
+	@Test
+	public void sameTreesAtAnyNumberOfThreads() {
+		RandomTreePool sequential = createPool(1);
+		for (int threads : new int[] { 2, 3, 8 }) {
+			RandomTreePool parallel = createPool(threads);
+			assertEquals(sequential.getSize(), parallel.getSize());
+			for (int i = 0; i < sequential.getSize(); i++) {
+				assertArrayEquals(sequential.getTree(i).getTrainingSemantics(),
+						parallel.getTree(i).getTrainingSemantics());
+				assertArrayEquals(sequential.getTree(i).getLogisticUnseenSemantics(),
+						parallel.getTree(i).getLogisticUnseenSemantics());
+			}
+		}
+	}
+
+	// a refresh replaces refreshFraction of the pool, each slot at most once
+	@Test
+	public void refreshReplacesDistinctTrees() {
+		GSGP gsgp = new GSGP(data, 5);
+		gsgp.setRandomTreePool(20, 1, 0.5);
+		RandomTreePool pool = gsgp.getRandomTreePool();
+		RandomTree[] before = new RandomTree[pool.getSize()];
+		for (int i = 0; i < before.length; i++)
+			before[i] = pool.getTree(i);
+		pool.nextGeneration(RandomGenerators.create(4), null, 1);
+		int replaced = 0;
+		for (int i = 0; i < before.length; i++)
+			if (pool.getTree(i) != before[i])
+				replaced++;
+		assertEquals(10, replaced);
+	}
+
+	protected RandomTreePool createPool(int threads) {
+		GSGP gsgp = new GSGP(data, 5);
+		try {
+			gsgp.setThreads(threads);
+			gsgp.setRandomTreePool(25, 0, 0.0);
+			return gsgp.getRandomTreePool();
+		} finally {
+			gsgp.shutdown();
+		}
+	}
+}
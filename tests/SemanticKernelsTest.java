@@ -0,0 +1,81 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// The vector kernels against the scalar ones, on a length that leaves a scalar tail and on offsets that
+// are not aligned. The semantics must be the same bits; the fused sums may differ in the last bits.
+public class SemanticKernelsTest {
+
+	protected static final int LENGTH = 103, OFFSET = 3;
+	protected static final double TOLERANCE = 1e-12;
+
+	protected SemanticKernels scalar = new SemanticKernels();
+	protected SemanticKernels vector = new VectorSemanticKernels();
+	protected Random r = new Random(1);
+	protected double[] parent1 = values(), parent2 = values(), randomTree1 = values(), randomTree2 = values(),
+			weights = values(), targets = values();
+
+	protected double[] values() {
+		double[] values = new double[LENGTH + OFFSET];
+		for (int i = 0; i < values.length; i++)
+			values[i] = r.nextDouble() * 20.0 - 10.0;
+		return values;
+	}
+
+	@Test
+	public void blend() {
+		double[] expected = new double[LENGTH], actual = new double[LENGTH];
+		scalar.blendSemantics(parent1, OFFSET, parent2, 0, weights, OFFSET, expected, 0, LENGTH);
+		vector.blendSemantics(parent1, OFFSET, parent2, 0, weights, OFFSET, actual, 0, LENGTH);
+		assertArrayEquals(expected, actual);
+	}
+
+	@Test
+	public void mutation() {
+		double[] expected = new double[LENGTH], actual = new double[LENGTH];
+		scalar.buildMutationSemantics(parent1, OFFSET, randomTree1, 0, randomTree2, OFFSET, expected, 0, LENGTH,
+				0.1, false);
+		vector.buildMutationSemantics(parent1, OFFSET, randomTree1, 0, randomTree2, OFFSET, actual, 0, LENGTH,
+				0.1, false);
+		assertArrayEquals(expected, actual);
+
+		scalar.buildMutationSemantics(parent1, OFFSET, randomTree1, 0, randomTree2, OFFSET, expected, 0, LENGTH,
+				0.1, true);
+		vector.buildMutationSemantics(parent1, OFFSET, randomTree1, 0, randomTree2, OFFSET, actual, 0, LENGTH,
+				0.1, true);
+		assertArrayEquals(expected, actual);
+	}
+
+	@Test
+	public void crossoverAndLogistic() {
+		double[] expected = new double[LENGTH], actual = new double[LENGTH];
+		scalar.buildCrossoverSemantics(parent1, OFFSET, parent2, 0, randomTree1, OFFSET, expected, 0, LENGTH);
+		vector.buildCrossoverSemantics(parent1, OFFSET, parent2, 0, randomTree1, OFFSET, actual, 0, LENGTH);
+		assertArrayEquals(expected, actual);
+
+		scalar.logistic(randomTree1, OFFSET, expected, 0, LENGTH);
+		vector.logistic(randomTree1, OFFSET, actual, 0, LENGTH);
+		assertArrayEquals(expected, actual);
+	}
+
+	@Test
+	public void fusedSums() {
+		assertClose(scalar.blendSemantics(parent1, OFFSET, parent2, 0, weights, OFFSET, null, 0, targets, 0, LENGTH),
+				vector.blendSemantics(parent1, OFFSET, parent2, 0, weights, OFFSET, null, 0, targets, 0, LENGTH));
+		assertClose(scalar.buildCrossoverSemantics(parent1, OFFSET, parent2, 0, randomTree1, OFFSET, null, 0,
+				targets, 0, LENGTH), vector.buildCrossoverSemantics(parent1, OFFSET, parent2, 0, randomTree1, OFFSET,
+				null, 0, targets, 0, LENGTH));
+		assertClose(scalar.buildMutationSemantics(parent1, OFFSET, randomTree1, 0, randomTree2, OFFSET, null, 0,
+				targets, 0, LENGTH, 0.1, true), vector.buildMutationSemantics(parent1, OFFSET, randomTree1, 0,
+				randomTree2, OFFSET, null, 0, targets, 0, LENGTH, 0.1, true));
+	}
+
+	protected static void assertClose(double expected, double actual) {
+		assertEquals(expected, actual, Math.abs(expected) * TOLERANCE);
+	}
+}
@@ -0,0 +1,61 @@
+package algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import main.Individual;
+import utils.Data;
+
+public class SubtreeCacheTest {
+
+	protected Data data = TestData.generate(100, 20, 1);
+
+	// a subtree gets an entry the second time it is computed, and is served from it afterwards
+	@Test
+	public void subtreesAreCachedWhenReused() {
+		Initializer initializer = new Initializer(3, RandomGenerators.create(2));
+		SubtreeCache cache = new SubtreeCache(data, initializer, 1L << 20);
+		Individual tree = initializer.full(3);
+		LinearProgram program = LinearProgram.fromIndividual(tree, initializer);
+
+		double[][] first = cache.evaluate(program);
+		assertEquals(0, cache.getSize());
+		double[][] second = cache.evaluate(program);
+		assertEquals(7, cache.getSize());	// the operators of a full tree of depth 3
+		double[][] third = cache.evaluate(program);
+		assertEquals(1, cache.getHits());
+
+		for (double[][] outputs : new double[][][] { first, second, third }) {
+			assertArrayEquals(tree.evaluate(data.getTrainingData()), outputs[0]);
+			assertArrayEquals(tree.evaluate(data.getUnseenData()), outputs[1]);
+		}
+	}
+
+	// the cache does not change the run
+	@Test
+	public void sameRunWithCache() {
+		GP plain = new GP(data, 5);
+		plain.search(10);
+		GP cached = new GP(data, 5);
+		cached.setSubtreeCache(1L << 20);
+		cached.search(10);
+		assertEquals(plain.getCurrentBest().getTrainingError(), cached.getCurrentBest().getTrainingError());
+	}
+
+	@Test
+	public void gsgpRejectsTheCache() {
+		final GSGP gsgp = new GSGP(data, 5);
+		gsgp.setSubtreeCache(0);
+		assertNull(gsgp.getSubtreeCache());
+		assertThrows(UnsupportedOperationException.class, new Executable() {
+			public void execute() {
+				gsgp.setSubtreeCache(1L << 20);
+			}
+		});
+	}
+}
@@ -0,0 +1,25 @@
+package algorithms;
+
+import java.util.Random;
+
+import utils.Data;
+
+// Small regression datasets for the tests: three features drawn uniformly from [-1, 1] followed by the
+// target x0 * x1 + x2.
+public class TestData {
+
+	public static double[][] generateRows(int rows, long seed) {
+		Random r = new Random(seed);
+		double[][] data = new double[rows][4];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < 3; j++)
+				data[i][j] = r.nextDouble() * 2.0 - 1.0;
+			data[i][3] = data[i][0] * data[i][1] + data[i][2];
+		}
+		return data;
+	}
+
+	public static Data generate(int trainingRows, int unseenRows, long seed) {
+		return new Data(generateRows(trainingRows, seed), generateRows(unseenRows, seed + 1));
+	}
+}